@@ -0,0 +1,117 @@
+package Benchmarks;
+
+import BloomFilter.BloomFilter;
+import BloomFilterUtilities.Funnels;
+import BloomFilterUtilities.HashStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures BloomFilter.add and BloomFilter.contains at 1% false positive rate for filters that fit in L1 (1K
+ * elements, about 1 KB), the last-level cache (1M elements, about 1.2 MB) and main memory (100M elements, about
+ * 120 MB), for both hashing strategies and for string and int elements. The contains filter is filled to capacity
+ * and half of the looked up keys are present. It is only read, so contains can be run with -t for thread scaling.
+ * Filters of several GB are measured by LongBloomFilterBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BloomFilterBenchmark {
+    static final int KEYS = 1 << 16;  // looked up keys, a power of two so the cursor wraps with a mask
+    private static final int FILL_CHUNK = 1 << 20;
+
+    @Param({"1000", "1000000", "100000000"})
+    public int n;
+
+    @Param({"SEEDED_MURMUR3_32", "DOUBLE_MURMUR3_128"})
+    public HashStrategy hashStrategy;
+
+    @Param({"string", "int"})
+    public String elementType;
+
+    BloomFilter filter;
+    String[] strings;
+    Integer[] ints;
+
+    /**
+     * Per-thread position in the key arrays, and a per-thread filter for adds since BloomFilter is not thread-safe.
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+        int cursor;
+        BloomFilter addFilter;
+
+        @Setup(Level.Iteration)
+        public void setup(BloomFilterBenchmark benchmark) {
+            this.addFilter = new BloomFilter(benchmark.n, 0.01, benchmark.hashStrategy);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // fill to capacity in chunks, so the filter has its designed fill ratio
+        this.filter = new BloomFilter(this.n, 0.01, this.hashStrategy);
+        for (int start = 0; start < this.n; start += FILL_CHUNK) {
+            int count = Math.min(FILL_CHUNK, this.n - start);
+            if (this.elementType.equals("string")) {
+                String[] chunk = new String[count];
+                for (int i = 0; i < count; i++) {
+                    chunk[i] = "password" + (start + i);
+                }
+                this.filter.addAll(chunk, Funnels.STRING);
+            } else {
+                int[] chunk = new int[count];
+                for (int i = 0; i < count; i++) {
+                    chunk[i] = start + i;
+                }
+                this.filter.addAll(chunk);
+            }
+        }
+
+        // keys drawn from twice the filled range, so about half are present
+        SplittableRandom random = new SplittableRandom(42);
+        this.strings = new String[KEYS];
+        this.ints = new Integer[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            int key = random.nextInt(2 * this.n);
+            this.strings[i] = "password" + key;
+            this.ints[i] = key;
+        }
+    }
+
+    @Benchmark
+    public void add(ThreadState state) {
+        int i = state.cursor++ & (KEYS - 1);
+        if (this.elementType.equals("string")) {
+            state.addFilter.add(this.strings[i], Funnels.STRING);
+        } else {
+            state.addFilter.add(this.ints[i], Funnels.INTEGER);
+        }
+    }
+
+    @Benchmark
+    public boolean contains(ThreadState state) {
+        int i = state.cursor++ & (KEYS - 1);
+        if (this.elementType.equals("string")) {
+            return this.filter.contains(this.strings[i], Funnels.STRING);
+        }
+
+        return this.filter.contains(this.ints[i], Funnels.INTEGER);
+    }
+}
@@ -0,0 +1,55 @@
+package Benchmarks;
+
+import BloomFilterUtilities.DoubleHashFunction;
+import BloomFilterUtilities.HashFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the seeded 32-bit hash used once per index and the 128-bit hash used once per element by double hashing,
+ * across input lengths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashBenchmark {
+    @Param({"8", "32", "256", "4096"})
+    public int length;
+
+    private byte[] data;
+    private HashFunction hashFunction;
+    private DoubleHashFunction doubleHashFunction;
+
+    @Setup
+    public void setup() {
+        this.data = new byte[this.length];
+        new SplittableRandom(42).nextBytes(this.data);
+        this.hashFunction = new HashFunction(1 << 30, 0);
+        this.doubleHashFunction = new DoubleHashFunction(1 << 30, 7);
+    }
+
+    @Benchmark
+    public int seededHash() {
+        return this.hashFunction.hash(this.data);
+    }
+
+    @Benchmark
+    public long[] doubleHash128() {
+        return this.doubleHashFunction.hash128(this.data, 0, this.data.length);
+    }
+}
@@ -0,0 +1,67 @@
+package Benchmarks;
+
+import BloomFilter.LongBloomFilter;
+import BloomFilterUtilities.Funnels;
+import BloomFilterUtilities.LongBitArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures LongBloomFilter.contains for filters of 120 MB, 1.2 GB and 3.6 GB at 1% false positive rate. Adding
+ * billions of elements would dominate the run, so the bit array is filled with random words at the 50% fill ratio of a
+ * filter at capacity, and the lookups measure the cost of probing memory rather than true positives.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class LongBloomFilterBenchmark {
+    @Param({"100000000", "1000000000", "3000000000"})
+    public long n;
+
+    private LongBloomFilter filter;
+    private String[] strings;
+
+    /**
+     * Per-thread position in the key array.
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+        int cursor;
+    }
+
+    @Setup
+    public void setup() {
+        this.filter = new LongBloomFilter(this.n, 0.01);
+        LongBitArray bits = this.filter.getBitArray();
+        SplittableRandom random = new SplittableRandom(42);
+        for (long i = 0; i < bits.wordCount(); i++) {
+            bits.setWord(i, random.nextLong());
+        }
+
+        this.strings = new String[BloomFilterBenchmark.KEYS];
+        for (int i = 0; i < this.strings.length; i++) {
+            this.strings[i] = "password" + random.nextInt();
+        }
+    }
+
+    @Benchmark
+    public boolean contains(ThreadState state) {
+        int i = state.cursor++ & (BloomFilterBenchmark.KEYS - 1);
+        return this.filter.contains(this.strings[i], Funnels.STRING);
+    }
+}
@@ -0,0 +1,67 @@
+package Benchmarks;
+
+import BloomFilterUtilities.Funnel;
+import BloomFilterUtilities.FunnelBuffer;
+import BloomFilterUtilities.Funnels;
+import BloomFilterUtilities.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Serializable;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares Java serialization, used by the Serializable add and contains methods, with funnel encoding into the
+ * reused thread-local buffer, across element types. Run with -prof gc to compare allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializerBenchmark {
+    @Param({"string", "integer", "uuid"})
+    public String elementType;
+
+    private Serializable value;
+    private Funnel<Object> funnel;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        switch (this.elementType) {
+            case "string":
+                this.value = "correcthorsebatterystaple";
+                this.funnel = (Funnel<Object>) (Funnel<?>) Funnels.STRING;
+                break;
+            case "integer":
+                this.value = 123456789;
+                this.funnel = (Funnel<Object>) (Funnel<?>) Funnels.INTEGER;
+                break;
+            default:
+                this.value = new UUID(42, 7);
+                this.funnel = (Funnel<Object>) (Funnel<?>) Funnels.UUID;
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return Serializer.serialize(this.value);
+    }
+
+    @Benchmark
+    public int funnel() {
+        return FunnelBuffer.encode(this.value, this.funnel).length();
+    }
+}
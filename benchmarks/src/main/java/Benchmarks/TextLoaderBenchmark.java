@@ -0,0 +1,71 @@
+package Benchmarks;
+
+import DataUtilities.TextLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading a password list with readText, which materializes every line, against the mapped line streams.
+ * The file stays in the page cache between invocations, so this measures parsing rather than disk reads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TextLoaderBenchmark {
+    @Param({"100000", "10000000"})
+    public int lines;
+
+    private Path path;
+
+    @Setup
+    public void setup() throws IOException {
+        this.path = Files.createTempFile("passwords", ".txt");
+        try (BufferedWriter writer = Files.newBufferedWriter(this.path, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < this.lines; i++) {
+                writer.write("password");
+                writer.write(Integer.toString(i));
+                writer.newLine();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.path);
+    }
+
+    @Benchmark
+    public Object[] readText() {
+        return TextLoader.readText(this.path.toString());
+    }
+
+    @Benchmark
+    public long streamLines() {
+        return TextLoader.streamLines(this.path.toString()).count();
+    }
+
+    @Benchmark
+    public long streamLineBytesParallel() {
+        return TextLoader.streamLineBytes(this.path.toString()).parallel().count();
+    }
+}
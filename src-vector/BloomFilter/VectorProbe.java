@@ -0,0 +1,56 @@
+package BloomFilter;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Probes a group of hashed elements against a register-blocked bit array with the incubating Vector API. Masks are
+ * built for a full vector of elements at once, their words are gathered in one operation, and all positions of all
+ * lanes are tested with one AND and one compare. This class lives in the optional src-vector source root and links
+ * against jdk.incubator.vector, so it is compiled with --add-modules jdk.incubator.vector and the filter only loads it
+ * by name once the module is known to be present, probing with scalar code otherwise.
+ */
+final class VectorProbe implements RegisterBlockedBloomFilter.BatchProbe {
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    /**
+     * Getter for number of elements probed per vector on this CPU.
+     * @return number of lanes of the preferred long vector
+     */
+    @Override
+    public int lanes() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public void probe(long[] words, int k, int[] wordIndexes, long[] h2s, int count, boolean[] results, int offset) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(count); i < bound; i += SPECIES.length()) {
+            // bit positions a + j * b are only used modulo 64, so long lanes give the same bits as the scalar ints
+            LongVector a = LongVector.fromArray(SPECIES, h2s, i);
+            LongVector b = a.lanewise(VectorOperators.LSHR, 32).or(1);
+            LongVector one = LongVector.broadcast(SPECIES, 1);
+            LongVector mask = LongVector.zero(SPECIES);
+            for (int j = 0; j < k; j++) {
+                mask = mask.or(one.lanewise(VectorOperators.LSHL, a.add(b.mul(j))));
+            }
+
+            LongVector probed = LongVector.fromArray(SPECIES, words, 0, wordIndexes, i);
+            VectorMask<Long> hits = probed.and(mask).eq(mask);
+            hits.intoArray(results, offset + i);
+        }
+
+        // probe the tail that does not fill a vector
+        for (; i < count; i++) {
+            int a = (int) h2s[i];
+            int b = (int) (h2s[i] >>> 32) | 1;
+            long mask = 0;
+            for (int j = 0; j < k; j++) {
+                mask |= 1L << (a + j * b);
+            }
+            results[offset + i] = (words[wordIndexes[i]] & mask) == mask;
+        }
+    }
+}
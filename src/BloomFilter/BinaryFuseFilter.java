@@ -0,0 +1,357 @@
+package BloomFilter;
+
+import BloomFilterUtilities.Funnel;
+import BloomFilterUtilities.FunnelBuffer;
+import BloomFilterUtilities.Serializer;
+import org.apache.commons.codec.digest.MurmurHash3;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * An immutable binary fuse filter with 8-bit fingerprints, built once from a complete set of elements. It uses about
+ * 9 bits per element for a false positive rate of 1/256 (about 0.4%), and a lookup reads exactly 3 bytes. Elements are
+ * hashed to 64-bit keys in parallel and deduplicated with a parallel sort; the keys are then placed on a single thread
+ * by peeling a 3-wise hypergraph whose vertices are split into consecutive segments. The filter cannot be added to, so
+ * it implements MembershipQuery rather than MembershipFilter.
+ */
+public class BinaryFuseFilter implements MembershipQuery {
+    private static final int ARITY = 3;
+    private static final int MAX_SEGMENT_LENGTH = 1 << 18;
+    private static final int MAX_ATTEMPTS = 100;
+
+    private long seed;
+    private int segmentLength;
+    private int segmentLengthMask;
+    private int segmentCount;
+    private int segmentCountLength;
+    private byte[] fingerprints;
+    private int count;
+
+    /**
+     * Constructor that sizes the fingerprint array for a number of distinct keys.
+     * @param size number of distinct keys
+     */
+    private BinaryFuseFilter(int size) {
+        this.segmentLength = size == 0 ? 4 : 1 << (int) Math.floor(Math.log(size) / Math.log(3.33) + 2.25);
+        this.segmentLength = Math.min(this.segmentLength, MAX_SEGMENT_LENGTH);
+        this.segmentLengthMask = this.segmentLength - 1;
+
+        // size factor approaches 1.125 for large sets
+        double sizeFactor = size <= 1 ? 0 : Math.max(1.125, 0.875 + 0.25 * Math.log(1000000) / Math.log(size));
+        int capacity = (int) Math.round(size * sizeFactor);
+        int initSegmentCount = (capacity + this.segmentLength - 1) / this.segmentLength - (ARITY - 1);
+        int arrayLength = (initSegmentCount + ARITY - 1) * this.segmentLength;
+        this.segmentCount = (arrayLength + this.segmentLength - 1) / this.segmentLength;
+        this.segmentCount = this.segmentCount <= ARITY - 1 ? 1 : this.segmentCount - (ARITY - 1);
+        arrayLength = (this.segmentCount + ARITY - 1) * this.segmentLength;
+        this.segmentCountLength = this.segmentCount * this.segmentLength;
+        this.fingerprints = new byte[arrayLength];
+        this.count = size;
+    }
+
+    /**
+     * Builds a filter from a stream of elements encoded with a funnel, such as TextLoader.streamLineBytes with
+     * Funnels.BYTE_BUFFER. The stream is hashed in parallel.
+     * @param elements elements to store
+     * @param funnel funnel used to encode elements
+     * @param <T> type of elements
+     * @return filter holding every element
+     */
+    public static <T> BinaryFuseFilter build(Stream<? extends T> elements, Funnel<? super T> funnel)
+            throws IllegalArgumentException {
+        if (elements == null) {
+            throw new IllegalArgumentException("Invalid null argument for elements.");
+        } else if (funnel == null) {
+            throw new IllegalArgumentException("Invalid null argument for funnel.");
+        }
+
+        return buildFromKeys(elements.parallel().mapToLong(element -> key(element, funnel)).toArray());
+    }
+
+    /**
+     * Builds a filter from an array of elements encoded with a funnel.
+     * @param elements elements to store
+     * @param funnel funnel used to encode elements
+     * @param <T> type of elements
+     * @return filter holding every element
+     */
+    public static <T> BinaryFuseFilter build(T[] elements, Funnel<? super T> funnel) throws IllegalArgumentException {
+        if (elements == null) {
+            throw new IllegalArgumentException("Invalid null argument for elements.");
+        }
+
+        return build(Arrays.stream(elements), funnel);
+    }
+
+    /**
+     * Builds a filter from an array of serializable objects, such as the lines returned by TextLoader.readText.
+     * @param elements serializable objects to store
+     * @return filter holding every object
+     */
+    public static BinaryFuseFilter build(Object[] elements) throws IllegalArgumentException {
+        if (elements == null) {
+            throw new IllegalArgumentException("Invalid null argument for elements.");
+        }
+
+        return buildFromKeys(Arrays.stream(elements).parallel().mapToLong(o -> key((Serializable) o)).toArray());
+    }
+
+    /**
+     * Deduplicates keys and builds the filter.
+     * @param keys 64-bit keys, possibly with duplicates
+     * @return filter holding every key
+     */
+    private static BinaryFuseFilter buildFromKeys(long[] keys) {
+        Arrays.parallelSort(keys);
+        int size = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                keys[size++] = keys[i];
+            }
+        }
+
+        BinaryFuseFilter filter = new BinaryFuseFilter(size);
+        filter.populate(keys, size);
+        return filter;
+    }
+
+    /**
+     * Places the fingerprints of distinct keys, retrying with a new seed if the hypergraph cannot be peeled.
+     * @param keys distinct keys in the first size entries
+     * @param size number of keys
+     */
+    private void populate(long[] keys, int size) {
+        int arrayLength = this.fingerprints.length;
+        long[] reverseOrder = new long[size + 1];
+        byte[] reverseH = new byte[size];
+        byte[] t2count = new byte[arrayLength];
+        long[] t2hash = new long[arrayLength];
+        int[] alone = new int[arrayLength];
+        int[] h012 = new int[5];
+
+        int blockBits = 1;
+        while ((1 << blockBits) < this.segmentCount) {
+            blockBits++;
+        }
+        int block = 1 << blockBits;
+
+        int reverseOrderPos = 0;
+        long nextSeed = 0x9e3779b97f4a7c15L;
+        for (int attempt = 0; ; attempt++) {
+            if (attempt == MAX_ATTEMPTS) {
+                throw new IllegalStateException("Failed to build BinaryFuseFilter.");
+            }
+            nextSeed += 0x9e3779b97f4a7c15L;
+            this.seed = mix(nextSeed);
+
+            // bucket hashes by their top bits so that the cells they touch are visited roughly in order
+            reverseOrder[size] = 1;
+            int[] startPos = new int[block];
+            for (int i = 0; i < block; i++) {
+                startPos[i] = (int) ((long) i * size >> blockBits);
+            }
+            for (int i = 0; i < size; i++) {
+                long hash = mix(keys[i] + this.seed);
+                int segmentIndex = (int) (hash >>> (64 - blockBits));
+                while (reverseOrder[startPos[segmentIndex]] != 0) {
+                    segmentIndex = (segmentIndex + 1) & (block - 1);
+                }
+                reverseOrder[startPos[segmentIndex]] = hash;
+                startPos[segmentIndex]++;
+            }
+
+            // count the keys in each cell; the low 2 bits xor together which of its 3 cells each key is
+            byte countMask = 0;
+            for (int i = 0; i < size; i++) {
+                long hash = reverseOrder[i];
+                for (int hi = 0; hi < ARITY; hi++) {
+                    int index = cell(hash, hi);
+                    t2count[index] += 4;
+                    t2count[index] ^= (byte) hi;
+                    t2hash[index] ^= hash;
+                    countMask |= t2count[index];
+                }
+            }
+
+            // peel cells holding a single key until none are left
+            reverseOrderPos = 0;
+            if (countMask >= 0) {
+                int alonePos = 0;
+                for (int i = 0; i < arrayLength; i++) {
+                    alone[alonePos] = i;
+                    alonePos += (t2count[i] >> 2) == 1 ? 1 : 0;
+                }
+                while (alonePos > 0) {
+                    int index = alone[--alonePos];
+                    if ((t2count[index] >> 2) != 1) {
+                        continue;
+                    }
+
+                    long hash = t2hash[index];
+                    int found = t2count[index] & 3;
+                    reverseH[reverseOrderPos] = (byte) found;
+                    reverseOrder[reverseOrderPos] = hash;
+                    reverseOrderPos++;
+                    h012[0] = cell(hash, 0);
+                    h012[1] = cell(hash, 1);
+                    h012[2] = cell(hash, 2);
+                    for (int j = 1; j < ARITY; j++) {
+                        int other = mod3(found + j);
+                        int otherIndex = h012[other];
+                        alone[alonePos] = otherIndex;
+                        alonePos += (t2count[otherIndex] >> 2) == 2 ? 1 : 0;
+                        t2count[otherIndex] -= 4;
+                        t2count[otherIndex] ^= (byte) other;
+                        t2hash[otherIndex] ^= hash;
+                    }
+                }
+            }
+            if (reverseOrderPos == size) {
+                break;
+            }
+
+            // a counter overflowed or the hypergraph has a cycle; retry with another seed
+            Arrays.fill(t2count, (byte) 0);
+            Arrays.fill(t2hash, 0);
+            Arrays.fill(reverseOrder, 0);
+        }
+
+        // assign fingerprints in reverse peeling order so each key's xor is fixed by its free cell
+        for (int i = reverseOrderPos - 1; i >= 0; i--) {
+            long hash = reverseOrder[i];
+            int found = reverseH[i];
+            h012[0] = cell(hash, 0);
+            h012[1] = cell(hash, 1);
+            h012[2] = cell(hash, 2);
+            h012[3] = h012[0];
+            h012[4] = h012[1];
+            this.fingerprints[h012[found]] = (byte) (fingerprint(hash)
+                    ^ this.fingerprints[h012[found + 1]] ^ this.fingerprints[h012[found + 2]]);
+        }
+    }
+
+    /**
+     * Checks if serializable object is in BinaryFuseFilter.
+     * @param s serializable object to check
+     * @return true if object is in BinaryFuseFilter, false otherwise
+     */
+    @Override
+    public boolean contains(Serializable s) {
+        return containsKey(key(s));
+    }
+
+    /**
+     * Checks if an element encoded with a funnel is in BinaryFuseFilter.
+     * @param element element to check
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     * @return true if element is in BinaryFuseFilter, false otherwise
+     */
+    @Override
+    public <T> boolean contains(T element, Funnel<? super T> funnel) throws IllegalArgumentException {
+        return containsKey(key(element, funnel));
+    }
+
+    /**
+     * Checks the 3 cells of a key.
+     * @param key 64-bit key
+     * @return true if the xor of the cells matches the key's fingerprint, false otherwise
+     */
+    private boolean containsKey(long key) {
+        long hash = mix(key + this.seed);
+        int f = (int) fingerprint(hash);
+        int h0 = cell(hash, 0);
+        int h1 = cell(hash, 1);
+        int h2 = cell(hash, 2);
+        f ^= this.fingerprints[h0] ^ this.fingerprints[h1] ^ this.fingerprints[h2];
+        return (f & 0xff) == 0;
+    }
+
+    /**
+     * Derives the cell of a hash in segment hi of its 3 consecutive segments.
+     * @param hash mixed hash of a key
+     * @param hi segment number, between 0 and 2
+     * @return cell index
+     */
+    private int cell(long hash, int hi) {
+        // unsigned high 64 bits of hash * segmentCountLength selects the first segment and offset
+        long h = Math.multiplyHigh(hash, this.segmentCountLength) + ((hash >> 63) & this.segmentCountLength);
+        h += (long) hi * this.segmentLength;
+        long hh = hash & ((1L << 36) - 1);
+        h ^= (hh >>> (36 - 18 * hi)) & this.segmentLengthMask;
+        return (int) h;
+    }
+
+    /**
+     * Hashes an element encoded with a funnel to a 64-bit key.
+     * @param element element to hash
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     * @return 64-bit key
+     */
+    private static <T> long key(T element, Funnel<? super T> funnel) {
+        FunnelBuffer buffer = FunnelBuffer.encode(element, funnel);
+        return MurmurHash3.hash128x64(buffer.array(), 0, buffer.length(), 0)[0];
+    }
+
+    /**
+     * Hashes a serializable object to a 64-bit key.
+     * @param s serializable object to hash
+     * @return 64-bit key
+     */
+    private static long key(Serializable s) {
+        byte[] byteArr = Serializer.serialize(s);
+        return MurmurHash3.hash128x64(byteArr, 0, byteArr.length, 0)[0];
+    }
+
+    /**
+     * Derives the 8-bit fingerprint of a hash.
+     * @param hash mixed hash of a key
+     * @return fingerprint in the low 8 bits
+     */
+    private static long fingerprint(long hash) {
+        return hash ^ (hash >>> 32);
+    }
+
+    /**
+     * Scrambles a value with the MurmurHash3 64-bit finalizer.
+     * @param h value to scramble
+     * @return scrambled value
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Reduces a value between 0 and 4 modulo 3.
+     * @param x value between 0 and 4
+     * @return x mod 3
+     */
+    private static int mod3(int x) {
+        return x > 2 ? x - 3 : x;
+    }
+
+    /**
+     * Getter for number of bits the filter stores elements in.
+     * @return number of bits
+     */
+    @Override
+    public long getBitSize() {
+        return this.fingerprints.length * 8L;
+    }
+
+    /**
+     * Getter for number of distinct elements stored.
+     * @return number of distinct elements
+     */
+    public int getCount() {
+        return this.count;
+    }
+}
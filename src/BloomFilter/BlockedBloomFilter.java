@@ -0,0 +1,175 @@
+package BloomFilter;
+
+import BloomFilterUtilities.DoubleHashFunction;
+import BloomFilterUtilities.FilterSizing;
+import BloomFilterUtilities.Funnel;
+import BloomFilterUtilities.FunnelBuffer;
+import BloomFilterUtilities.Serializer;
+
+import java.io.Serializable;
+
+/**
+ * A cache-line blocked BloomFilter implementation. The first half of an element's 128-bit hash selects one 512-bit
+ * block and the second half selects all k bits inside it, so every add or lookup touches a single cache line.
+ */
+public class BlockedBloomFilter implements MembershipFilter {
+    private static final int BLOCK_BITS = 512;
+    private static final int BLOCK_WORDS = BLOCK_BITS / 64;
+
+    private int m;  // size of BlockedBloomFilter, a multiple of the block size
+    private int k;  // number of bits set per element
+    private int blockCount;
+    private long[] words;
+    private DoubleHashFunction hashFunction;
+
+    /**
+     * Constructor that initializes BlockedBloomFilter given expected number of elements and target false-positive
+     * rate. Blocking raises the false positive rate because elements are spread unevenly over blocks, so m is grown
+     * from the standard optimum until the blocked false positive rate meets the target.
+     * @param n expected number of elements to be stored by BlockedBloomFilter.
+     * @param fpr target false positive rate
+     */
+    public BlockedBloomFilter(int n, double fpr) throws IllegalArgumentException {
+        FilterSizing.validate(n, fpr);
+
+        long blocks = FilterSizing.optimalBlocks(n, fpr, BLOCK_BITS);
+        if (blocks > Integer.MAX_VALUE / BLOCK_BITS) {
+            throw new IllegalArgumentException("Filter is too large for a BlockedBloomFilter.");
+        }
+
+        this.blockCount = (int) blocks;
+        this.m = this.blockCount * BLOCK_BITS;
+        this.k = FilterSizing.optimalBlockedHashes(n, this.blockCount, BLOCK_BITS);
+        this.words = new long[this.blockCount * BLOCK_WORDS];
+        this.hashFunction = new DoubleHashFunction(this.blockCount, this.k);
+    }
+
+    /**
+     * Computes the expected false positive rate of a blocked filter with 512-bit blocks.
+     * @param n number of elements stored
+     * @param blocks number of blocks
+     * @param k number of bits set per element
+     * @return expected false positive rate
+     */
+    public static double expectedFpr(long n, long blocks, int k) {
+        return FilterSizing.blockedFpr(n, blocks, BLOCK_BITS, k);
+    }
+
+    /**
+     * Adds a serializable object to the BlockedBloomFilter.
+     * @param s serializable object to add
+     */
+    @Override
+    public void add(Serializable s) {
+        byte[] byteArr = Serializer.serialize(s);
+        addBytes(byteArr, 0, byteArr.length);
+    }
+
+    /**
+     * Adds an element encoded with a funnel to the BlockedBloomFilter.
+     * @param element element to add
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     */
+    @Override
+    public <T> void add(T element, Funnel<? super T> funnel) throws IllegalArgumentException {
+        FunnelBuffer buffer = FunnelBuffer.encode(element, funnel);
+        addBytes(buffer.array(), 0, buffer.length());
+    }
+
+    /**
+     * Checks if serializable object is in BlockedBloomFilter.
+     * @param s serializable object to check
+     * @return true if object is in BlockedBloomFilter, false otherwise
+     */
+    @Override
+    public boolean contains(Serializable s) {
+        byte[] byteArr = Serializer.serialize(s);
+        return containsBytes(byteArr, 0, byteArr.length);
+    }
+
+    /**
+     * Checks if an element encoded with a funnel is in BlockedBloomFilter.
+     * @param element element to check
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     * @return true if element is in BlockedBloomFilter, false otherwise
+     */
+    @Override
+    public <T> boolean contains(T element, Funnel<? super T> funnel) throws IllegalArgumentException {
+        FunnelBuffer buffer = FunnelBuffer.encode(element, funnel);
+        return containsBytes(buffer.array(), 0, buffer.length());
+    }
+
+    /**
+     * Sets the bits of an encoded element inside its block.
+     * @param data encoded element
+     * @param offset offset of the first byte of the element
+     * @param length number of bytes in the element
+     */
+    private void addBytes(byte[] data, int offset, int length) {
+        long[] h = this.hashFunction.hash128(data, offset, length);
+        int base = this.hashFunction.index(h[0], 0, 0) * BLOCK_WORDS;    // h1 selects the block
+        int a = (int) h[1];
+        int b = (int) (h[1] >>> 32) | 1;  // odd step visits distinct bits within the block
+        for (int i = 0; i < this.k; i++) {
+            int bit = (a + i * b) & (BLOCK_BITS - 1);
+            this.words[base + (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Checks the bits of an encoded element inside its block.
+     * @param data encoded element
+     * @param offset offset of the first byte of the element
+     * @param length number of bytes in the element
+     * @return true if all bits are set, false otherwise
+     */
+    private boolean containsBytes(byte[] data, int offset, int length) {
+        long[] h = this.hashFunction.hash128(data, offset, length);
+        int base = this.hashFunction.index(h[0], 0, 0) * BLOCK_WORDS;
+        int a = (int) h[1];
+        int b = (int) (h[1] >>> 32) | 1;
+        for (int i = 0; i < this.k; i++) {
+            int bit = (a + i * b) & (BLOCK_BITS - 1);
+            if ((this.words[base + (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Getter for number of bits the filter stores elements in.
+     * @return number of bits
+     */
+    @Override
+    public long getBitSize() {
+        return getM();
+    }
+
+    /**
+     * Getter for size of bit array.
+     * @return size of bit array
+     */
+    public int getM() {
+        return this.m;
+    }
+
+    /**
+     * Getter for number of bits set per element.
+     * @return number of bits set per element
+     */
+    public int getK() {
+        return this.k;
+    }
+
+    /**
+     * Getter for number of 512-bit blocks.
+     * @return number of blocks
+     */
+    public int getBlockCount() {
+        return this.blockCount;
+    }
+}
@@ -1,45 +1,134 @@
 package BloomFilter;
 
+import BloomFilterUtilities.DoubleHashFunction;
+import BloomFilterUtilities.FilterSizing;
+import BloomFilterUtilities.Funnel;
+import BloomFilterUtilities.FunnelBuffer;
 import BloomFilterUtilities.HashFunction;
+import BloomFilterUtilities.HashStrategy;
 import BloomFilterUtilities.Serializer;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.LongBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
 
 /**
  * A BloomFilter implementation.
  */
-public class BloomFilter {
+public class BloomFilter implements MembershipFilter {
     private int m;  // size of BloomFilter
     private int k;  // number of hash functions
     private BitSet bitset;
-    private HashFunction[] hashFunctions;
+    private HashStrategy hashStrategy;
+    private HashFunction[] hashFunctions;   // used by SEEDED_MURMUR3_32
+    private DoubleHashFunction doubleHashFunction;  // used by DOUBLE_MURMUR3_128
+    private long elementCount;  // number of add calls, including repeats
+    private int setBits;    // number of bits set, maintained as bits are set
+    private double fpr = Double.NaN;    // target false positive rate, NaN if unknown
+    private FilterMetrics metrics;  // null unless metrics are enabled
+
+    private static final int BATCH_SIZE = 256;  // elements hashed ahead of probing in batch operations
+
+    private static Logger logger = Logger.getLogger(BloomFilter.class.getName());
+
+    /**
+     * Supplies the elements of a batch operation one at a time.
+     */
+    private interface BatchSource {
+        /**
+         * Encodes the next element into a buffer.
+         * @param into buffer to write into
+         * @return true if an element was written, false if the source is exhausted
+         */
+        boolean next(FunnelBuffer into);
+    }
 
     /**
      * Constructor that initializes BloomFilter given expected number of elements and target false-positive rate.
+     * Uses the seeded hashing strategy, so that the bits set match those of filters built by earlier versions.
      * @param n expected number of elements to be stored by BloomFilter.
      * @param fpr target false positive rate
      */
     public BloomFilter(int n, double fpr) throws IllegalArgumentException {
-        if (n <= 0) {
-            throw new IllegalArgumentException("N must be positive.");
-        }
+        this(n, fpr, HashStrategy.SEEDED_MURMUR3_32);
+    }
 
-        if (fpr < 0 || fpr > 1) {
-            throw new IllegalArgumentException("Fpr must be between 0 and 1.");
+    /**
+     * Constructor that initializes BloomFilter given expected number of elements, target false-positive rate and
+     * hashing strategy.
+     * @param n expected number of elements to be stored by BloomFilter.
+     * @param fpr target false positive rate
+     * @param hashStrategy strategy used to derive the k indexes of an element
+     */
+    public BloomFilter(int n, double fpr, HashStrategy hashStrategy) throws IllegalArgumentException {
+        if (hashStrategy == null) {
+            throw new IllegalArgumentException("Invalid null argument for hashStrategy.");
         }
 
+        FilterSizing.validate(n, fpr);
+
         // initialize m and k
-        this.m = Math.max(1, (int) Math.ceil(((-n * Math.log(fpr)) / Math.pow(Math.log(2), 2))));
-        this.k = Math.max(1, (int) Math.round((((double) this.m / n) * Math.log(2))));
+        this.m = Math.max(1, (int) Math.ceil(FilterSizing.optimalBits(n, fpr)));
+        this.k = FilterSizing.optimalHashes(this.m, n);
 
-        // initialize bitset and hashfunctions array
+        // initialize bitset and hash functions
+        this.fpr = fpr;
         this.bitset = new BitSet(this.m);
-        this.hashFunctions = new HashFunction[this.k];
+        this.hashStrategy = hashStrategy;
+        initializeHashFunctions();
+    }
+
+    /**
+     * Constructor that initializes an empty BloomFilter with explicit parameters, used to restore snapshots and to
+     * create filters compatible with an existing one.
+     * @param m size of bit array
+     * @param k number of hash functions
+     * @param hashStrategy strategy used to derive the k indexes of an element
+     */
+    BloomFilter(int m, int k, HashStrategy hashStrategy) {
+        this(m, k, hashStrategy, new BitSet(m));
+    }
+
+    /**
+     * Constructor that initializes a BloomFilter with explicit parameters around an existing bitset.
+     * @param m size of bit array
+     * @param k number of hash functions
+     * @param hashStrategy strategy used to derive the k indexes of an element
+     * @param bitset bits of the filter, which are not copied
+     */
+    private BloomFilter(int m, int k, HashStrategy hashStrategy, BitSet bitset) {
+        this.m = m;
+        this.k = k;
+        this.bitset = bitset;
+        this.hashStrategy = hashStrategy;
+        initializeHashFunctions();
+    }
+
+    /**
+     * Initializes the hash functions of the filter's hashing strategy.
+     */
+    private void initializeHashFunctions() {
+        if (this.hashStrategy == HashStrategy.DOUBLE_MURMUR3_128) {
+            this.doubleHashFunction = new DoubleHashFunction(this.m, this.k);
+        } else {
+            this.hashFunctions = new HashFunction[this.k];
 
-        // generate k hash functions
-        for (int seed = 0; seed < k; seed++) {
-            this.hashFunctions[seed] = new HashFunction(this.m, seed);
+            // generate k hash functions
+            for (int seed = 0; seed < k; seed++) {
+                this.hashFunctions[seed] = new HashFunction(this.m, seed);
+            }
         }
     }
 
@@ -47,15 +136,23 @@ public class BloomFilter {
      * Adds a serializable object to the BloomFilter.
      * @param s serializable object to add
      */
+    @Override
     public void add(Serializable s) {
         // serialize s
         byte[] byteArr = Serializer.serialize(s);
+        addBytes(byteArr, 0, byteArr.length);
+    }
 
-        // set bitset indexes
-        for (HashFunction h : this.hashFunctions) {
-            int index = h.hash(byteArr);
-            this.bitset.set(index);
-        }
+    /**
+     * Adds an element to the BloomFilter, encoding it with a funnel instead of Java serialization.
+     * @param element element to add
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     */
+    @Override
+    public <T> void add(T element, Funnel<? super T> funnel) throws IllegalArgumentException {
+        FunnelBuffer buffer = FunnelBuffer.encode(element, funnel);
+        addBytes(buffer.array(), 0, buffer.length());
     }
 
     /**
@@ -63,14 +160,410 @@ public class BloomFilter {
      * @param s serializable object to check
      * @return true if object is in BloomFilter, false otherwise
      */
+    @Override
     public boolean contains(Serializable s) {
         // serialize s
         byte[] byteArr = Serializer.serialize(s);
+        return containsBytes(byteArr, 0, byteArr.length);
+    }
+
+    /**
+     * Checks if an element encoded with a funnel is in BloomFilter.
+     * @param element element to check
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     * @return true if element is in BloomFilter, false otherwise
+     */
+    @Override
+    public <T> boolean contains(T element, Funnel<? super T> funnel) throws IllegalArgumentException {
+        FunnelBuffer buffer = FunnelBuffer.encode(element, funnel);
+        return containsBytes(buffer.array(), 0, buffer.length());
+    }
+
+    /**
+     * Sets the bitset indexes of an encoded element.
+     * @param data encoded element
+     * @param offset offset of the first byte of the element
+     * @param length number of bytes in the element
+     */
+    private void addBytes(byte[] data, int offset, int length) {
+        FilterMetrics metrics = this.metrics;
+        long start = metrics == null ? 0 : metrics.start();
+
+        this.elementCount++;
+        if (this.doubleHashFunction != null) {
+            long[] h = this.doubleHashFunction.hash128(data, offset, length);
+            for (int i = 0; i < this.k; i++) {
+                setBit(this.doubleHashFunction.index(h[0], h[1], i));
+            }
+        } else {
+            for (HashFunction h : this.hashFunctions) {
+                int index = h.hash(data, offset, length);
+                setBit(index);
+            }
+        }
+
+        if (metrics != null) {
+            metrics.recordInsert(start);
+        }
+    }
+
+    /**
+     * Sets a bit, counting it if it was clear.
+     * @param index index of bit
+     */
+    private void setBit(int index) {
+        if (!this.bitset.get(index)) {
+            this.bitset.set(index);
+            this.setBits++;
+        }
+    }
+
+    /**
+     * Checks the bitset indexes of an encoded element.
+     * @param data encoded element
+     * @param offset offset of the first byte of the element
+     * @param length number of bytes in the element
+     * @return true if all indexes are set, false otherwise
+     */
+    private boolean containsBytes(byte[] data, int offset, int length) {
+        FilterMetrics metrics = this.metrics;
+        if (metrics == null) {
+            return probeBytes(data, offset, length);
+        }
+
+        long start = metrics.start();
+        boolean res = probeBytes(data, offset, length);
+        metrics.recordQuery(res, start);
+        return res;
+    }
+
+    /**
+     * Probes the bitset indexes of an encoded element.
+     * @param data encoded element
+     * @param offset offset of the first byte of the element
+     * @param length number of bytes in the element
+     * @return true if all indexes are set, false otherwise
+     */
+    private boolean probeBytes(byte[] data, int offset, int length) {
+        if (this.doubleHashFunction != null) {
+            long[] h = this.doubleHashFunction.hash128(data, offset, length);
+            for (int i = 0; i < this.k; i++) {
+                if (!this.bitset.get(this.doubleHashFunction.index(h[0], h[1], i))) {
+                    return false;
+                }
+            }
+        } else {
+            for (HashFunction h : this.hashFunctions) {
+                int index = h.hash(data, offset, length);
+                if (!this.bitset.get(index)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Adds an array of elements to the BloomFilter. Elements are hashed in batches and each batch's bits are set in
+     * ascending order, so neighbouring indexes share cache lines instead of being visited at random.
+     * @param elements elements to add
+     * @param funnel funnel used to encode elements
+     * @param <T> type of elements
+     */
+    public <T> void addAll(T[] elements, Funnel<? super T> funnel) throws IllegalArgumentException {
+        if (elements == null) {
+            throw new IllegalArgumentException("Invalid null argument for elements.");
+        }
+
+        addAll(Arrays.asList(elements), funnel);
+    }
+
+    /**
+     * Adds an iterable of elements to the BloomFilter.
+     * @param elements elements to add
+     * @param funnel funnel used to encode elements
+     * @param <T> type of elements
+     */
+    public <T> void addAll(Iterable<? extends T> elements, Funnel<? super T> funnel) throws IllegalArgumentException {
+        addBatched(iterableSource(elements, funnel));
+    }
+
+    /**
+     * Adds an array of ints to the BloomFilter, encoded as with Funnels.INTEGER.
+     * @param elements elements to add
+     */
+    public void addAll(int[] elements) throws IllegalArgumentException {
+        addBatched(intSource(elements));
+    }
+
+    /**
+     * Adds an array of longs to the BloomFilter, encoded as with Funnels.LONG.
+     * @param elements elements to add
+     */
+    public void addAll(long[] elements) throws IllegalArgumentException {
+        addBatched(longSource(elements));
+    }
+
+    /**
+     * Checks which elements of an array are in BloomFilter. Elements are hashed in batches, then every element of a
+     * batch is probed for its first index before any is probed for its second, so the loads of a round are
+     * independent and their cache misses overlap.
+     * @param elements elements to check
+     * @param funnel funnel used to encode elements
+     * @param <T> type of elements
+     * @return array where entry i is true if elements[i] is in BloomFilter
+     */
+    public <T> boolean[] containsAll(T[] elements, Funnel<? super T> funnel) throws IllegalArgumentException {
+        if (elements == null) {
+            throw new IllegalArgumentException("Invalid null argument for elements.");
+        }
+
+        return toBooleans(containsAll(Arrays.asList(elements), funnel), elements.length);
+    }
+
+    /**
+     * Checks which elements of an iterable are in BloomFilter.
+     * @param elements elements to check
+     * @param funnel funnel used to encode elements
+     * @param <T> type of elements
+     * @return bitset where bit i is set if the i-th element is in BloomFilter
+     */
+    public <T> BitSet containsAll(Iterable<? extends T> elements, Funnel<? super T> funnel)
+            throws IllegalArgumentException {
+        return containsBatched(iterableSource(elements, funnel));
+    }
+
+    /**
+     * Checks which ints of an array are in BloomFilter, encoded as with Funnels.INTEGER.
+     * @param elements elements to check
+     * @return array where entry i is true if elements[i] is in BloomFilter
+     */
+    public boolean[] containsAll(int[] elements) throws IllegalArgumentException {
+        return toBooleans(containsBatched(intSource(elements)), elements.length);
+    }
+
+    /**
+     * Checks which longs of an array are in BloomFilter, encoded as with Funnels.LONG.
+     * @param elements elements to check
+     * @return array where entry i is true if elements[i] is in BloomFilter
+     */
+    public boolean[] containsAll(long[] elements) throws IllegalArgumentException {
+        return toBooleans(containsBatched(longSource(elements)), elements.length);
+    }
+
+    /**
+     * Adds all elements of a source, one batch at a time.
+     * @param source elements to add
+     */
+    private void addBatched(BatchSource source) {
+        int[] indexes = new int[BATCH_SIZE * this.k];
+        int count;
+        do {
+            count = hashBatch(source, indexes);
 
-        // check bitset indexes
-        for (HashFunction h : this.hashFunctions) {
-            int index = h.hash(byteArr);
-            if (!this.bitset.get(index)) {
+            // set bits in ascending order so that indexes in the same word are written together
+            int total = count * this.k;
+            Arrays.sort(indexes, 0, total);
+            for (int j = 0; j < total; j++) {
+                setBit(indexes[j]);
+            }
+            this.elementCount += count;
+            if (this.metrics != null) {
+                this.metrics.recordInserts(count);
+            }
+        } while (count == BATCH_SIZE);
+    }
+
+    /**
+     * Checks all elements of a source, one batch at a time.
+     * @param source elements to check
+     * @return bitset where bit i is set if the i-th element is in BloomFilter
+     */
+    private BitSet containsBatched(BatchSource source) {
+        BitSet results = new BitSet();
+        int[] indexes = new int[BATCH_SIZE * this.k];
+        boolean[] candidates = new boolean[BATCH_SIZE];
+        int base = 0;
+        int count;
+        do {
+            count = hashBatch(source, indexes);
+
+            // probe index i of every remaining candidate before moving on to index i + 1
+            Arrays.fill(candidates, 0, count, true);
+            for (int i = 0; i < this.k; i++) {
+                for (int e = 0; e < count; e++) {
+                    if (candidates[e] && !this.bitset.get(indexes[e * this.k + i])) {
+                        candidates[e] = false;
+                    }
+                }
+            }
+
+            int positives = 0;
+            for (int e = 0; e < count; e++) {
+                if (candidates[e]) {
+                    results.set(base + e);
+                    positives++;
+                }
+            }
+            base += count;
+            if (this.metrics != null) {
+                this.metrics.recordQueries(count, positives);
+            }
+        } while (count == BATCH_SIZE);
+
+        return results;
+    }
+
+    /**
+     * Hashes up to BATCH_SIZE elements of a source into their k indexes each.
+     * @param source elements to hash
+     * @param indexes array receiving k indexes per element, element by element
+     * @return number of elements hashed
+     */
+    private int hashBatch(BatchSource source, int[] indexes) {
+        FunnelBuffer buffer = FunnelBuffer.local();
+        int count = 0;
+        while (count < BATCH_SIZE) {
+            buffer.reset();
+            if (!source.next(buffer)) {
+                break;
+            }
+
+            int pos = count * this.k;
+            if (this.doubleHashFunction != null) {
+                long[] h = this.doubleHashFunction.hash128(buffer.array(), 0, buffer.length());
+                for (int i = 0; i < this.k; i++) {
+                    indexes[pos + i] = this.doubleHashFunction.index(h[0], h[1], i);
+                }
+            } else {
+                for (int i = 0; i < this.k; i++) {
+                    indexes[pos + i] = this.hashFunctions[i].hash(buffer.array(), 0, buffer.length());
+                }
+            }
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Creates a batch source over an iterable of elements.
+     * @param elements elements to supply
+     * @param funnel funnel used to encode elements
+     * @param <T> type of elements
+     * @return batch source
+     */
+    private static <T> BatchSource iterableSource(Iterable<? extends T> elements, Funnel<? super T> funnel)
+            throws IllegalArgumentException {
+        if (elements == null) {
+            throw new IllegalArgumentException("Invalid null argument for elements.");
+        } else if (funnel == null) {
+            throw new IllegalArgumentException("Invalid null argument for funnel.");
+        }
+
+        Iterator<? extends T> it = elements.iterator();
+        return into -> {
+            if (!it.hasNext()) {
+                return false;
+            }
+            funnel.funnel(it.next(), into);
+            return true;
+        };
+    }
+
+    /**
+     * Creates a batch source over an array of ints.
+     * @param elements elements to supply
+     * @return batch source
+     */
+    private static BatchSource intSource(int[] elements) throws IllegalArgumentException {
+        if (elements == null) {
+            throw new IllegalArgumentException("Invalid null argument for elements.");
+        }
+
+        PrimitiveIterator.OfInt it = Arrays.stream(elements).iterator();
+        return into -> {
+            if (!it.hasNext()) {
+                return false;
+            }
+            into.putInt(it.nextInt());
+            return true;
+        };
+    }
+
+    /**
+     * Creates a batch source over an array of longs.
+     * @param elements elements to supply
+     * @return batch source
+     */
+    private static BatchSource longSource(long[] elements) throws IllegalArgumentException {
+        if (elements == null) {
+            throw new IllegalArgumentException("Invalid null argument for elements.");
+        }
+
+        PrimitiveIterator.OfLong it = Arrays.stream(elements).iterator();
+        return into -> {
+            if (!it.hasNext()) {
+                return false;
+            }
+            into.putLong(it.nextLong());
+            return true;
+        };
+    }
+
+    /**
+     * Converts batch results to an array.
+     * @param results bitset of results
+     * @param length number of elements checked
+     * @return array where entry i is true if bit i is set
+     */
+    private static boolean[] toBooleans(BitSet results, int length) {
+        boolean[] res = new boolean[length];
+        for (int i = results.nextSetBit(0); i >= 0 && i < length; i = results.nextSetBit(i + 1)) {
+            res[i] = true;
+        }
+
+        return res;
+    }
+
+    /**
+     * Creates an empty BloomFilter with the same parameters as this one, so that the two can be merged.
+     * @return empty compatible BloomFilter
+     */
+    BloomFilter emptyCopy() {
+        BloomFilter copy = new BloomFilter(this.m, this.k, this.hashStrategy);
+        copy.fpr = this.fpr;
+        return copy;
+    }
+
+    /**
+     * Merges a compatible BloomFilter into this one by OR-ing their bitsets.
+     * @param other BloomFilter with the same parameters
+     */
+    void or(BloomFilter other) {
+        this.bitset.or(other.bitset);
+        this.setBits = this.bitset.cardinality();
+        this.elementCount += other.elementCount;
+    }
+
+    /**
+     * Checks if another BloomFilter shares this one's size, number of hash functions, hashing strategy and seeds, so
+     * that the same element sets the same bits in both.
+     * @param other BloomFilter to compare with
+     * @return true if the filters are compatible, false otherwise
+     */
+    public boolean isCompatible(BloomFilter other) {
+        if (other == null || this.m != other.m || this.k != other.k || this.hashStrategy != other.hashStrategy) {
+            return false;
+        }
+
+        if (this.hashStrategy == HashStrategy.DOUBLE_MURMUR3_128) {
+            return this.doubleHashFunction.getSeed() == other.doubleHashFunction.getSeed();
+        }
+        for (int i = 0; i < this.k; i++) {
+            if (this.hashFunctions[i].getSeed() != other.hashFunctions[i].getSeed()) {
                 return false;
             }
         }
@@ -78,6 +571,351 @@ public class BloomFilter {
         return true;
     }
 
+    /**
+     * Merges a compatible BloomFilter into this one, so that this filter contains every element of either.
+     * @param other BloomFilter with the same parameters
+     */
+    public void merge(BloomFilter other) throws IllegalArgumentException {
+        checkCompatible(other);
+        or(other);
+    }
+
+    /**
+     * Creates a BloomFilter holding the union of two compatible filters. The element count of the result is the sum
+     * of theirs.
+     * @param a first BloomFilter
+     * @param b second BloomFilter with the same parameters
+     * @return new BloomFilter containing every element of either filter
+     */
+    public static BloomFilter union(BloomFilter a, BloomFilter b) throws IllegalArgumentException {
+        if (a == null) {
+            throw new IllegalArgumentException("Invalid null argument for a.");
+        }
+        a.checkCompatible(b);
+
+        BloomFilter result = a.emptyCopy();
+        result.or(a);
+        result.or(b);
+        return result;
+    }
+
+    /**
+     * Creates a BloomFilter holding the intersection of two compatible filters. An element of both filters is always
+     * contained in the result, but the result may have a higher false positive rate than a filter built from the
+     * intersection directly. The element count of the result is 0, since the number of adds is unknown.
+     * @param a first BloomFilter
+     * @param b second BloomFilter with the same parameters
+     * @return new BloomFilter containing every element of both filters
+     */
+    public static BloomFilter intersect(BloomFilter a, BloomFilter b) throws IllegalArgumentException {
+        if (a == null) {
+            throw new IllegalArgumentException("Invalid null argument for a.");
+        }
+        a.checkCompatible(b);
+
+        BloomFilter result = a.emptyCopy();
+        result.bitset.or(a.bitset);
+        result.bitset.and(b.bitset);
+        result.setBits = result.bitset.cardinality();
+        return result;
+    }
+
+    /**
+     * Estimates the number of distinct elements from the number of set bits X as -(m / k) * ln(1 - X / m).
+     * @return estimated number of distinct elements, or positive infinity if every bit is set
+     */
+    public double estimateCardinality() {
+        return estimateCardinality(this.setBits);
+    }
+
+    /**
+     * Estimates the number of distinct elements in both this and a compatible BloomFilter, as the sum of their
+     * estimated cardinalities minus the estimated cardinality of their union.
+     * @param other BloomFilter with the same parameters
+     * @return estimated intersection size, or NaN if either filter or their union is full
+     */
+    public double estimateIntersectionSize(BloomFilter other) throws IllegalArgumentException {
+        checkCompatible(other);
+
+        double union = estimateCardinality(unionCardinality(other));
+        double intersection = estimateCardinality() + other.estimateCardinality() - union;
+        if (Double.isNaN(intersection) || Double.isInfinite(union)) {
+            return Double.NaN;
+        }
+
+        return Math.max(0, intersection);
+    }
+
+    /**
+     * Estimates the Jaccard similarity of the element sets of this and a compatible BloomFilter, as their estimated
+     * intersection size over their estimated union size.
+     * @param other BloomFilter with the same parameters
+     * @return estimated similarity between 0 and 1, 0 if both filters are empty, or NaN if either filter is full
+     */
+    public double estimateJaccard(BloomFilter other) throws IllegalArgumentException {
+        checkCompatible(other);
+
+        double union = estimateCardinality(unionCardinality(other));
+        if (union == 0) {
+            return 0;
+        }
+
+        return Math.min(1, estimateIntersectionSize(other) / union);
+    }
+
+    /**
+     * Counts the bits set in either this or another BloomFilter.
+     * @param other BloomFilter of the same size
+     * @return number of bits set in the union
+     */
+    private int unionCardinality(BloomFilter other) {
+        BitSet union = (BitSet) this.bitset.clone();
+        union.or(other.bitset);
+        return union.cardinality();
+    }
+
+    /**
+     * Estimates the number of distinct elements that set a number of bits.
+     * @param setBits number of bits set
+     * @return estimated number of distinct elements, or positive infinity if every bit is set
+     */
+    private double estimateCardinality(int setBits) {
+        if (setBits >= this.m) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        return -((double) this.m / this.k) * Math.log1p(-(double) setBits / this.m);
+    }
+
+    /**
+     * Throws if another BloomFilter is not compatible with this one.
+     * @param other BloomFilter to compare with
+     */
+    private void checkCompatible(BloomFilter other) throws IllegalArgumentException {
+        if (other == null) {
+            throw new IllegalArgumentException("Invalid null argument for other.");
+        } else if (!isCompatible(other)) {
+            throw new IllegalArgumentException("BloomFilters must have the same m, k, hash strategy and seeds.");
+        }
+    }
+
+    /**
+     * Writes a binary snapshot of the BloomFilter to a stream. The stream is not closed.
+     * @param out stream to write to
+     * @return 0 if successful, -1 otherwise
+     */
+    public int writeTo(OutputStream out) throws IllegalArgumentException {
+        if (out == null) {
+            throw new IllegalArgumentException("Invalid null argument for out.");
+        }
+
+        return writeTo(Channels.newChannel(out));
+    }
+
+    /**
+     * Writes a binary snapshot of the BloomFilter to a channel. The channel is not closed.
+     * @param channel channel to write to
+     * @return 0 if successful, -1 otherwise
+     */
+    public int writeTo(WritableByteChannel channel) throws IllegalArgumentException {
+        return writeTo(channel, false);
+    }
+
+    /**
+     * Writes a compressed snapshot of the BloomFilter to a stream, which readFrom also reads. The stream is not
+     * closed. Sparse filters shrink close to the entropy of their set bits, while filters near capacity are written
+     * as raw snapshots.
+     * @param out stream to write to
+     * @return 0 if successful, -1 otherwise
+     */
+    public int writeCompressedTo(OutputStream out) throws IllegalArgumentException {
+        if (out == null) {
+            throw new IllegalArgumentException("Invalid null argument for out.");
+        }
+
+        return writeTo(Channels.newChannel(out), true);
+    }
+
+    /**
+     * Writes a compressed snapshot of the BloomFilter to a channel, which readFrom also reads. The channel is not
+     * closed.
+     * @param channel channel to write to
+     * @return 0 if successful, -1 otherwise
+     */
+    public int writeCompressedTo(WritableByteChannel channel) throws IllegalArgumentException {
+        return writeTo(channel, true);
+    }
+
+    /**
+     * Writes a raw or compressed snapshot of the BloomFilter to a channel.
+     * @param channel channel to write to
+     * @param compressed true to write a compressed snapshot
+     * @return 0 if successful, -1 otherwise
+     */
+    private int writeTo(WritableByteChannel channel, boolean compressed) throws IllegalArgumentException {
+        if (channel == null) {
+            throw new IllegalArgumentException("Invalid null argument for channel.");
+        }
+
+        Snapshots.Header header = new Snapshots.Header();
+        header.m = this.m;
+        header.k = this.k;
+        header.hashStrategy = this.hashStrategy;
+        header.elementCount = this.elementCount;
+
+        Snapshots.WordSource source = new BitSetWords(this.bitset, this.m);
+        try {
+            if (compressed) {
+                Snapshots.writeCompressed(channel, header, source);
+            } else {
+                Snapshots.write(channel, header, source);
+            }
+            return 0;
+        } catch (IOException ioe) {
+            logger.log(Level.SEVERE, "Failed to write snapshot with exception: " + ioe);
+            return -1;
+        }
+    }
+
+    /**
+     * Reads a BloomFilter from a raw or compressed binary snapshot in a stream. The stream is not closed.
+     * @param in stream to read from
+     * @return BloomFilter or null if error occurs
+     */
+    public static BloomFilter readFrom(InputStream in) throws IllegalArgumentException {
+        if (in == null) {
+            throw new IllegalArgumentException("Invalid null argument for in.");
+        }
+
+        return readFrom(Channels.newChannel(in));
+    }
+
+    /**
+     * Reads a BloomFilter from a raw or compressed binary snapshot in a channel. The channel is not closed.
+     * @param channel channel to read from
+     * @return BloomFilter or null if error occurs
+     */
+    public static BloomFilter readFrom(ReadableByteChannel channel) throws IllegalArgumentException {
+        if (channel == null) {
+            throw new IllegalArgumentException("Invalid null argument for channel.");
+        }
+
+        try {
+            CRC32C crc = new CRC32C();
+            Snapshots.Header header = Snapshots.readHeader(channel, crc);
+            if (header.m > Integer.MAX_VALUE || header.seed != 0) {
+                throw new IOException("Snapshot parameters are not supported by BloomFilter.");
+            }
+            if (header.wordCount() * 8 > Runtime.getRuntime().maxMemory()) {
+                throw new IOException("Snapshot filter does not fit in the heap.");
+            }
+
+            BloomFilter bf;
+            if (header.isCompressed()) {
+                BloomFilter target = new BloomFilter((int) header.m, header.k, header.hashStrategy);
+                Snapshots.readBits(channel, header, i -> target.setBit((int) i), crc);
+                bf = target;
+            } else {
+                // read the words before creating the filter, so only the words and the bitset made from them coexist
+                long[] words = new long[(int) header.wordCount()];
+                Snapshots.readWords(channel, header, new Snapshots.WordSink() {
+                    @Override
+                    public void word(long index, long word) {
+                        words[(int) index] = word;
+                    }
+
+                    @Override
+                    public void words(long from, LongBuffer src) {
+                        src.get(words, (int) from, src.remaining());
+                    }
+                }, crc);
+                bf = new BloomFilter((int) header.m, header.k, header.hashStrategy, BitSet.valueOf(words));
+                bf.setBits = bf.bitset.cardinality();
+            }
+            bf.elementCount = header.elementCount;
+            return bf;
+        } catch (IOException ioe) {
+            logger.log(Level.SEVERE, "Failed to read snapshot with exception: " + ioe);
+            return null;
+        }
+    }
+
+    /**
+     * Starts collecting metrics, replacing any collected before. Without metrics, adds and lookups only pay for a null
+     * check.
+     * @param timed true to also keep latency histograms of single adds and lookups
+     * @return metrics of this filter
+     */
+    public FilterMetrics enableMetrics(boolean timed) {
+        this.metrics = new FilterMetrics(this, timed);
+        return this.metrics;
+    }
+
+    /**
+     * Stops collecting metrics.
+     */
+    public void disableMetrics() {
+        this.metrics = null;
+    }
+
+    /**
+     * Estimates the current false positive rate from the fill ratio as (X / m)^k.
+     * @return estimated false positive rate
+     */
+    public double estimateFpr() {
+        return Math.pow(getFillRatio(), this.k);
+    }
+
+    /**
+     * Getter for metrics.
+     * @return metrics, or null if metrics are not enabled
+     */
+    public FilterMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Getter for number of bits set through this filter's operations. Changes made directly to getBitset() are not
+     * counted.
+     * @return number of set bits
+     */
+    public int getSetBitCount() {
+        return this.setBits;
+    }
+
+    /**
+     * Getter for fraction of bits set.
+     * @return fill ratio
+     */
+    public double getFillRatio() {
+        return (double) this.setBits / this.m;
+    }
+
+    /**
+     * Getter for target false positive rate the filter was sized for.
+     * @return target false positive rate, or NaN if the filter was restored from a snapshot
+     */
+    public double getFpr() {
+        return this.fpr;
+    }
+
+    /**
+     * Getter for number of elements added, counting repeated adds of the same element.
+     * @return number of elements added
+     */
+    public long getElementCount() {
+        return this.elementCount;
+    }
+
+    /**
+     * Getter for number of bits the filter stores elements in.
+     * @return number of bits
+     */
+    @Override
+    public long getBitSize() {
+        return getM();
+    }
+
     /**
      * Getter for size of bit array.
      * @return size of bit array
@@ -94,14 +932,30 @@ public class BloomFilter {
         return this.k;
     }
 
+    /**
+     * Getter for hashing strategy.
+     * @return hashing strategy
+     */
+    public HashStrategy getHashStrategy() {
+        return this.hashStrategy;
+    }
+
     /**
      * Getter for hash functions.
-     * @return hash functions
+     * @return hash functions, or null if the filter uses double hashing
      */
     public HashFunction[] getHashFunctions() {
         return this.hashFunctions;
     }
 
+    /**
+     * Getter for double hash function.
+     * @return double hash function, or null if the filter uses seeded hashing
+     */
+    public DoubleHashFunction getDoubleHashFunction() {
+        return this.doubleHashFunction;
+    }
+
     /**
      * Getter for bitset.
      * @return bitset
@@ -118,4 +972,50 @@ public class BloomFilter {
     public String toString() {
         return this.bitset.toString();
     }
+
+    /**
+     * Supplies the words of a bitset to a snapshot a chunk at a time, so that writing never copies the whole bit array
+     * the way BitSet.toLongArray does.
+     */
+    private static final class BitSetWords implements Snapshots.WordSource {
+        private static final int CHUNK_WORDS = 8192;
+
+        private final BitSet bitset;
+        private final int m;
+        private final long[] chunk = new long[CHUNK_WORDS];
+        private long chunkStart = -1;
+
+        /**
+         * Constructor that initializes source for the words of a bitset.
+         * @param bitset bits to supply
+         * @param m size of bit array
+         */
+        BitSetWords(BitSet bitset, int m) {
+            this.bitset = bitset;
+            this.m = m;
+        }
+
+        @Override
+        public long word(long index) {
+            if (this.chunkStart < 0 || index < this.chunkStart || index >= this.chunkStart + CHUNK_WORDS) {
+                this.chunkStart = index - index % CHUNK_WORDS;
+                words(this.chunkStart, LongBuffer.wrap(this.chunk));
+            }
+
+            return this.chunk[(int) (index - this.chunkStart)];
+        }
+
+        @Override
+        public void words(long from, LongBuffer into) {
+            // copy the range out of the bitset; toLongArray drops trailing zero words, which are put back as zeros
+            int fromBit = (int) Math.min(from * 64, this.m);
+            int toBit = (int) Math.min((from + into.remaining()) * 64, this.m);
+            long[] words = this.bitset.get(fromBit, toBit).toLongArray();
+            int count = into.remaining();
+            into.put(words);
+            for (int i = words.length; i < count; i++) {
+                into.put(0L);
+            }
+        }
+    }
 }
@@ -0,0 +1,208 @@
+package BloomFilter;
+
+import BloomFilterUtilities.DoubleHashFunction;
+import BloomFilterUtilities.FilterSizing;
+import BloomFilterUtilities.Funnel;
+import BloomFilterUtilities.FunnelBuffer;
+import BloomFilterUtilities.Serializer;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe BloomFilter implementation. Bits are stored in an AtomicLongArray and set with compare-and-set, so
+ * adds and lookups never take a lock and can be called from any number of platform or virtual threads.
+ */
+public class ConcurrentBloomFilter implements MembershipFilter {
+    private int m;  // size of BloomFilter
+    private int k;  // number of hash functions
+    private AtomicLongArray words;
+    private DoubleHashFunction hashFunction;
+
+    /**
+     * Constructor that initializes ConcurrentBloomFilter given expected number of elements and target
+     * false-positive rate.
+     * @param n expected number of elements to be stored by ConcurrentBloomFilter.
+     * @param fpr target false positive rate
+     */
+    public ConcurrentBloomFilter(int n, double fpr) throws IllegalArgumentException {
+        FilterSizing.validate(n, fpr);
+
+        // initialize m and k
+        this.m = Math.max(1, (int) Math.ceil(FilterSizing.optimalBits(n, fpr)));
+        this.k = FilterSizing.optimalHashes(this.m, n);
+
+        // initialize word array and hash function
+        this.words = new AtomicLongArray((this.m + 63) >>> 6);
+        this.hashFunction = new DoubleHashFunction(this.m, this.k);
+    }
+
+    /**
+     * Adds a serializable object to the ConcurrentBloomFilter.
+     * @param s serializable object to add
+     * @return number of bits changed from 0 to 1; 0 means the object was probably already present
+     */
+    public int put(Serializable s) {
+        byte[] byteArr = Serializer.serialize(s);
+        return putBytes(byteArr, 0, byteArr.length);
+    }
+
+    /**
+     * Adds an element encoded with a funnel to the ConcurrentBloomFilter.
+     * @param element element to add
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     * @return number of bits changed from 0 to 1; 0 means the element was probably already present
+     */
+    public <T> int put(T element, Funnel<? super T> funnel) throws IllegalArgumentException {
+        FunnelBuffer buffer = FunnelBuffer.encode(element, funnel);
+        return putBytes(buffer.array(), 0, buffer.length());
+    }
+
+    /**
+     * Adds a serializable object to the ConcurrentBloomFilter.
+     * @param s serializable object to add
+     */
+    @Override
+    public void add(Serializable s) {
+        put(s);
+    }
+
+    /**
+     * Adds an element encoded with a funnel to the ConcurrentBloomFilter.
+     * @param element element to add
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     */
+    @Override
+    public <T> void add(T element, Funnel<? super T> funnel) throws IllegalArgumentException {
+        put(element, funnel);
+    }
+
+    /**
+     * Checks if serializable object is in ConcurrentBloomFilter.
+     * @param s serializable object to check
+     * @return true if object is in ConcurrentBloomFilter, false otherwise
+     */
+    @Override
+    public boolean contains(Serializable s) {
+        byte[] byteArr = Serializer.serialize(s);
+        return containsBytes(byteArr, 0, byteArr.length);
+    }
+
+    /**
+     * Checks if an element encoded with a funnel is in ConcurrentBloomFilter.
+     * @param element element to check
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     * @return true if element is in ConcurrentBloomFilter, false otherwise
+     */
+    @Override
+    public <T> boolean contains(T element, Funnel<? super T> funnel) throws IllegalArgumentException {
+        FunnelBuffer buffer = FunnelBuffer.encode(element, funnel);
+        return containsBytes(buffer.array(), 0, buffer.length());
+    }
+
+    /**
+     * Sets the bit indexes of an encoded element.
+     * @param data encoded element
+     * @param offset offset of the first byte of the element
+     * @param length number of bytes in the element
+     * @return number of bits changed from 0 to 1
+     */
+    private int putBytes(byte[] data, int offset, int length) {
+        long[] h = this.hashFunction.hash128(data, offset, length);
+        int changed = 0;
+        for (int i = 0; i < this.k; i++) {
+            if (setBit(this.hashFunction.index(h[0], h[1], i))) {
+                changed++;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Checks the bit indexes of an encoded element.
+     * @param data encoded element
+     * @param offset offset of the first byte of the element
+     * @param length number of bytes in the element
+     * @return true if all indexes are set, false otherwise
+     */
+    private boolean containsBytes(byte[] data, int offset, int length) {
+        long[] h = this.hashFunction.hash128(data, offset, length);
+        for (int i = 0; i < this.k; i++) {
+            if (!getBit(this.hashFunction.index(h[0], h[1], i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Sets a bit with compare-and-set, skipping the write if the bit is already set.
+     * @param index index of bit to set
+     * @return true if the bit changed from 0 to 1, false if it was already set
+     */
+    private boolean setBit(int index) {
+        int wordIndex = index >>> 6;
+        long mask = 1L << index;
+        long word;
+        do {
+            word = this.words.get(wordIndex);
+            if ((word & mask) != 0) {
+                return false;
+            }
+        } while (!this.words.compareAndSet(wordIndex, word, word | mask));
+
+        return true;
+    }
+
+    /**
+     * Reads a bit.
+     * @param index index of bit to read
+     * @return true if the bit is set, false otherwise
+     */
+    private boolean getBit(int index) {
+        return (this.words.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    /**
+     * Counts the set bits. The result is a snapshot and may miss concurrent adds.
+     * @return number of set bits
+     */
+    public long cardinality() {
+        long count = 0;
+        for (int i = 0; i < this.words.length(); i++) {
+            count += Long.bitCount(this.words.get(i));
+        }
+
+        return count;
+    }
+
+    /**
+     * Getter for number of bits the filter stores elements in.
+     * @return number of bits
+     */
+    @Override
+    public long getBitSize() {
+        return getM();
+    }
+
+    /**
+     * Getter for size of bit array.
+     * @return size of bit array
+     */
+    public int getM() {
+        return this.m;
+    }
+
+    /**
+     * Getter for number of hash functions.
+     * @return number of hash functions
+     */
+    public int getK() {
+        return this.k;
+    }
+}
@@ -0,0 +1,239 @@
+package BloomFilter;
+
+import BloomFilterUtilities.DoubleHashFunction;
+import BloomFilterUtilities.FilterSizing;
+import BloomFilterUtilities.Funnel;
+import BloomFilterUtilities.FunnelBuffer;
+import BloomFilterUtilities.Serializer;
+
+import java.io.Serializable;
+
+/**
+ * A counting BloomFilter implementation that supports removal. Each of the m positions holds a 4-bit saturating
+ * counter, packed 16 to a long word, which costs 4 times the memory of a plain BloomFilter. A counter that reaches 15
+ * sticks there: it is never decremented again, since its true count is unknown, and removals can no longer clear it.
+ */
+public class CountingBloomFilter implements MembershipFilter {
+    private static final int COUNTER_BITS = 4;
+    private static final long COUNTER_MAX = (1L << COUNTER_BITS) - 1;
+
+    private int m;  // number of counters
+    private int k;  // number of hash functions
+    private long[] counters;
+    private DoubleHashFunction hashFunction;
+    private long overflowCount;     // increments lost to saturated counters
+    private int saturatedCount;     // counters stuck at the maximum
+
+    /**
+     * Constructor that initializes CountingBloomFilter given expected number of elements and target false-positive
+     * rate.
+     * @param n expected number of elements to be stored by CountingBloomFilter.
+     * @param fpr target false positive rate
+     */
+    public CountingBloomFilter(int n, double fpr) throws IllegalArgumentException {
+        FilterSizing.validate(n, fpr);
+
+        // initialize m and k
+        this.m = Math.max(1, (int) Math.ceil(FilterSizing.optimalBits(n, fpr)));
+        this.k = FilterSizing.optimalHashes(this.m, n);
+
+        // initialize counters and hash function
+        this.counters = new long[(int) (((long) this.m + 15) >>> 4)];
+        this.hashFunction = new DoubleHashFunction(this.m, this.k);
+    }
+
+    /**
+     * Adds a serializable object to the CountingBloomFilter.
+     * @param s serializable object to add
+     */
+    @Override
+    public void add(Serializable s) {
+        byte[] byteArr = Serializer.serialize(s);
+        addBytes(byteArr, 0, byteArr.length);
+    }
+
+    /**
+     * Adds an element encoded with a funnel to the CountingBloomFilter.
+     * @param element element to add
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     */
+    @Override
+    public <T> void add(T element, Funnel<? super T> funnel) throws IllegalArgumentException {
+        FunnelBuffer buffer = FunnelBuffer.encode(element, funnel);
+        addBytes(buffer.array(), 0, buffer.length());
+    }
+
+    /**
+     * Removes a serializable object from the CountingBloomFilter. Only remove objects that were added; removing
+     * anything else can cause false negatives.
+     * @param s serializable object to remove
+     * @return true if the object was present and its counters were decremented, false otherwise
+     */
+    public boolean remove(Serializable s) {
+        byte[] byteArr = Serializer.serialize(s);
+        return removeBytes(byteArr, 0, byteArr.length);
+    }
+
+    /**
+     * Removes an element encoded with a funnel from the CountingBloomFilter. Only remove elements that were added;
+     * removing anything else can cause false negatives.
+     * @param element element to remove
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     * @return true if the element was present and its counters were decremented, false otherwise
+     */
+    public <T> boolean remove(T element, Funnel<? super T> funnel) throws IllegalArgumentException {
+        FunnelBuffer buffer = FunnelBuffer.encode(element, funnel);
+        return removeBytes(buffer.array(), 0, buffer.length());
+    }
+
+    /**
+     * Checks if serializable object is in CountingBloomFilter.
+     * @param s serializable object to check
+     * @return true if object is in CountingBloomFilter, false otherwise
+     */
+    @Override
+    public boolean contains(Serializable s) {
+        byte[] byteArr = Serializer.serialize(s);
+        return containsBytes(byteArr, 0, byteArr.length);
+    }
+
+    /**
+     * Checks if an element encoded with a funnel is in CountingBloomFilter.
+     * @param element element to check
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     * @return true if element is in CountingBloomFilter, false otherwise
+     */
+    @Override
+    public <T> boolean contains(T element, Funnel<? super T> funnel) throws IllegalArgumentException {
+        FunnelBuffer buffer = FunnelBuffer.encode(element, funnel);
+        return containsBytes(buffer.array(), 0, buffer.length());
+    }
+
+    /**
+     * Increments the counters of an encoded element.
+     * @param data encoded element
+     * @param offset offset of the first byte of the element
+     * @param length number of bytes in the element
+     */
+    private void addBytes(byte[] data, int offset, int length) {
+        long[] h = this.hashFunction.hash128(data, offset, length);
+        for (int i = 0; i < this.k; i++) {
+            int index = this.hashFunction.index(h[0], h[1], i);
+            long count = getCounter(index);
+            if (count == COUNTER_MAX) {
+                this.overflowCount++;
+            } else {
+                setCounter(index, count + 1);
+                if (count + 1 == COUNTER_MAX) {
+                    this.saturatedCount++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Decrements the counters of an encoded element if all of them are non-zero. Saturated counters are left as is.
+     * @param data encoded element
+     * @param offset offset of the first byte of the element
+     * @param length number of bytes in the element
+     * @return true if the counters were decremented, false if the element is not present
+     */
+    private boolean removeBytes(byte[] data, int offset, int length) {
+        if (!containsBytes(data, offset, length)) {
+            return false;
+        }
+
+        long[] h = this.hashFunction.hash128(data, offset, length);
+        for (int i = 0; i < this.k; i++) {
+            int index = this.hashFunction.index(h[0], h[1], i);
+            long count = getCounter(index);
+            if (count != COUNTER_MAX && count > 0) {
+                setCounter(index, count - 1);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks the counters of an encoded element.
+     * @param data encoded element
+     * @param offset offset of the first byte of the element
+     * @param length number of bytes in the element
+     * @return true if all counters are non-zero, false otherwise
+     */
+    private boolean containsBytes(byte[] data, int offset, int length) {
+        long[] h = this.hashFunction.hash128(data, offset, length);
+        for (int i = 0; i < this.k; i++) {
+            if (getCounter(this.hashFunction.index(h[0], h[1], i)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Reads a counter.
+     * @param index index of counter
+     * @return counter value, between 0 and 15
+     */
+    private long getCounter(int index) {
+        return (this.counters[index >>> 4] >>> ((index & 15) << 2)) & COUNTER_MAX;
+    }
+
+    /**
+     * Overwrites a counter.
+     * @param index index of counter
+     * @param value new counter value, between 0 and 15
+     */
+    private void setCounter(int index, long value) {
+        int shift = (index & 15) << 2;
+        int wordIndex = index >>> 4;
+        this.counters[wordIndex] = (this.counters[wordIndex] & ~(COUNTER_MAX << shift)) | (value << shift);
+    }
+
+    /**
+     * Getter for number of bits used by the counters.
+     * @return number of bits
+     */
+    @Override
+    public long getBitSize() {
+        return (long) this.m * COUNTER_BITS;
+    }
+
+    /**
+     * Getter for number of counters.
+     * @return number of counters
+     */
+    public int getM() {
+        return this.m;
+    }
+
+    /**
+     * Getter for number of hash functions.
+     * @return number of hash functions
+     */
+    public int getK() {
+        return this.k;
+    }
+
+    /**
+     * Getter for number of increments lost because their counter was already saturated.
+     * @return number of lost increments
+     */
+    public long getOverflowCount() {
+        return this.overflowCount;
+    }
+
+    /**
+     * Getter for number of counters stuck at the maximum value.
+     * @return number of saturated counters
+     */
+    public int getSaturatedCount() {
+        return this.saturatedCount;
+    }
+}
@@ -0,0 +1,412 @@
+package BloomFilter;
+
+import BloomFilterUtilities.FilterSizing;
+import BloomFilterUtilities.Funnel;
+import BloomFilterUtilities.FunnelBuffer;
+import BloomFilterUtilities.Serializer;
+import org.apache.commons.codec.digest.MurmurHash3;
+
+import java.io.Serializable;
+import java.util.SplittableRandom;
+
+/**
+ * A cuckoo filter implementation. Each element is stored as an f-bit fingerprint in one of two candidate buckets of
+ * BUCKET_SIZE slots, so a lookup reads at most two buckets and elements can be removed. When both buckets are full,
+ * resident fingerprints are kicked to their alternate bucket up to MAX_KICKS times. If that fails, the last displaced
+ * fingerprint is kept in a one-entry victim slot so that nothing is lost, and the filter reports itself full.
+ */
+public class CuckooFilter implements MembershipFilter {
+    private static final int BUCKET_SIZE = 4;
+    private static final double LOAD_FACTOR = 0.95;
+    private static final int MAX_KICKS = 500;
+    private static final int MIN_FINGERPRINT_BITS = 4;
+    private static final int MAX_FINGERPRINT_BITS = 32;
+
+    private int bucketCount;
+    private int f;  // fingerprint size in bits
+    private long fingerprintMask;
+    private long[] table;   // fingerprints packed f bits each, BUCKET_SIZE per bucket
+    private long count;     // elements stored, including the victim
+    private boolean hasVictim;
+    private int victimBucket;
+    private long victimFingerprint;
+    private SplittableRandom random;
+
+    /**
+     * Constructor that initializes CuckooFilter given expected number of elements and target false-positive rate.
+     * A lookup compares against up to 2 * BUCKET_SIZE fingerprints, so f = ceil(log2(2 * BUCKET_SIZE / fpr)).
+     * @param n expected number of elements to be stored by CuckooFilter.
+     * @param fpr target false positive rate
+     */
+    public CuckooFilter(int n, double fpr) throws IllegalArgumentException {
+        FilterSizing.validate(n, fpr);
+
+        // initialize fingerprint size and number of buckets
+        int bits = (int) Math.ceil(Math.log(2.0 * BUCKET_SIZE / fpr) / Math.log(2));
+        this.f = Math.min(MAX_FINGERPRINT_BITS, Math.max(MIN_FINGERPRINT_BITS, bits));
+        this.fingerprintMask = (1L << this.f) - 1;
+        long buckets = Math.max(2, (long) Math.ceil(n / (BUCKET_SIZE * LOAD_FACTOR)));
+        if (buckets * BUCKET_SIZE * this.f / 64 >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Filter is too large for a CuckooFilter.");
+        }
+        this.bucketCount = (int) buckets;
+
+        // one extra word lets a fingerprint straddle the last word boundary
+        this.table = new long[(int) (buckets * BUCKET_SIZE * this.f / 64) + 1];
+        this.random = new SplittableRandom(0);
+    }
+
+    /**
+     * Adds a serializable object to the CuckooFilter.
+     * @param s serializable object to add
+     */
+    @Override
+    public void add(Serializable s) throws IllegalStateException {
+        if (!tryAdd(s)) {
+            throw new IllegalStateException("CuckooFilter is full.");
+        }
+    }
+
+    /**
+     * Adds an element encoded with a funnel to the CuckooFilter.
+     * @param element element to add
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     */
+    @Override
+    public <T> void add(T element, Funnel<? super T> funnel) throws IllegalArgumentException, IllegalStateException {
+        if (!tryAdd(element, funnel)) {
+            throw new IllegalStateException("CuckooFilter is full.");
+        }
+    }
+
+    /**
+     * Adds a serializable object to the CuckooFilter if there is room.
+     * @param s serializable object to add
+     * @return true if the object was added, false if the filter is full
+     */
+    public boolean tryAdd(Serializable s) {
+        byte[] byteArr = Serializer.serialize(s);
+        return addHash(MurmurHash3.hash128x64(byteArr, 0, byteArr.length, 0));
+    }
+
+    /**
+     * Adds an element encoded with a funnel to the CuckooFilter if there is room.
+     * @param element element to add
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     * @return true if the element was added, false if the filter is full
+     */
+    public <T> boolean tryAdd(T element, Funnel<? super T> funnel) throws IllegalArgumentException {
+        FunnelBuffer buffer = FunnelBuffer.encode(element, funnel);
+        return addHash(MurmurHash3.hash128x64(buffer.array(), 0, buffer.length(), 0));
+    }
+
+    /**
+     * Removes a serializable object from the CuckooFilter. Only remove objects that were added; removing anything
+     * else can remove a different element with the same fingerprint.
+     * @param s serializable object to remove
+     * @return true if a matching fingerprint was removed, false otherwise
+     */
+    public boolean remove(Serializable s) {
+        byte[] byteArr = Serializer.serialize(s);
+        return removeHash(MurmurHash3.hash128x64(byteArr, 0, byteArr.length, 0));
+    }
+
+    /**
+     * Removes an element encoded with a funnel from the CuckooFilter. Only remove elements that were added; removing
+     * anything else can remove a different element with the same fingerprint.
+     * @param element element to remove
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     * @return true if a matching fingerprint was removed, false otherwise
+     */
+    public <T> boolean remove(T element, Funnel<? super T> funnel) throws IllegalArgumentException {
+        FunnelBuffer buffer = FunnelBuffer.encode(element, funnel);
+        return removeHash(MurmurHash3.hash128x64(buffer.array(), 0, buffer.length(), 0));
+    }
+
+    /**
+     * Checks if serializable object is in CuckooFilter.
+     * @param s serializable object to check
+     * @return true if object is in CuckooFilter, false otherwise
+     */
+    @Override
+    public boolean contains(Serializable s) {
+        byte[] byteArr = Serializer.serialize(s);
+        return containsHash(MurmurHash3.hash128x64(byteArr, 0, byteArr.length, 0));
+    }
+
+    /**
+     * Checks if an element encoded with a funnel is in CuckooFilter.
+     * @param element element to check
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     * @return true if element is in CuckooFilter, false otherwise
+     */
+    @Override
+    public <T> boolean contains(T element, Funnel<? super T> funnel) throws IllegalArgumentException {
+        FunnelBuffer buffer = FunnelBuffer.encode(element, funnel);
+        return containsHash(MurmurHash3.hash128x64(buffer.array(), 0, buffer.length(), 0));
+    }
+
+    /**
+     * Stores the fingerprint of a hashed element, kicking out resident fingerprints if both buckets are full.
+     * @param h 128-bit hash of the element
+     * @return true if the element was stored, false if the filter is full
+     */
+    private boolean addHash(long[] h) {
+        if (this.hasVictim) {
+            return false;
+        }
+
+        long fp = fingerprint(h[1]);
+        int i1 = bucket(h[0]);
+        int i2 = alternateBucket(i1, fp);
+        if (insertIntoBucket(i1, fp) || insertIntoBucket(i2, fp)) {
+            this.count++;
+            return true;
+        }
+
+        // kick a random resident to its alternate bucket until one fits
+        int bucket = this.random.nextBoolean() ? i1 : i2;
+        for (int kick = 0; kick < MAX_KICKS; kick++) {
+            int slot = this.random.nextInt(BUCKET_SIZE);
+            long resident = getFingerprint(bucket, slot);
+            setFingerprint(bucket, slot, fp);
+            fp = resident;
+            bucket = alternateBucket(bucket, fp);
+            if (insertIntoBucket(bucket, fp)) {
+                this.count++;
+                return true;
+            }
+        }
+
+        // keep the displaced fingerprint so that no stored element is lost
+        this.hasVictim = true;
+        this.victimBucket = bucket;
+        this.victimFingerprint = fp;
+        this.count++;
+        return true;
+    }
+
+    /**
+     * Removes one copy of the fingerprint of a hashed element from its buckets or the victim slot.
+     * @param h 128-bit hash of the element
+     * @return true if a fingerprint was removed, false otherwise
+     */
+    private boolean removeHash(long[] h) {
+        long fp = fingerprint(h[1]);
+        int i1 = bucket(h[0]);
+        int i2 = alternateBucket(i1, fp);
+        if (removeFromBucket(i1, fp) || removeFromBucket(i2, fp)) {
+            this.count--;
+
+            // a slot was freed, so the victim may fit back into the table
+            if (this.hasVictim) {
+                int alternate = alternateBucket(this.victimBucket, this.victimFingerprint);
+                this.hasVictim = !insertIntoBucket(this.victimBucket, this.victimFingerprint)
+                        && !insertIntoBucket(alternate, this.victimFingerprint);
+            }
+            return true;
+        }
+
+        if (this.hasVictim && this.victimFingerprint == fp && (this.victimBucket == i1 || this.victimBucket == i2)) {
+            this.hasVictim = false;
+            this.count--;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks the two buckets of a hashed element and the victim slot for its fingerprint.
+     * @param h 128-bit hash of the element
+     * @return true if the fingerprint is found, false otherwise
+     */
+    private boolean containsHash(long[] h) {
+        long fp = fingerprint(h[1]);
+        int i1 = bucket(h[0]);
+        int i2 = alternateBucket(i1, fp);
+        if (bucketContains(i1, fp) || bucketContains(i2, fp)) {
+            return true;
+        }
+
+        return this.hasVictim && this.victimFingerprint == fp
+                && (this.victimBucket == i1 || this.victimBucket == i2);
+    }
+
+    /**
+     * Derives a non-zero fingerprint, since zero marks an empty slot.
+     * @param h2 second half of the 128-bit hash
+     * @return fingerprint
+     */
+    private long fingerprint(long h2) {
+        long fp = (h2 >>> (64 - this.f)) & this.fingerprintMask;
+        return fp == 0 ? 1 : fp;
+    }
+
+    /**
+     * Derives the primary bucket of an element.
+     * @param h1 first half of the 128-bit hash
+     * @return bucket index
+     */
+    private int bucket(long h1) {
+        return (int) ((h1 & Long.MAX_VALUE) % this.bucketCount);
+    }
+
+    /**
+     * Derives the other bucket of a fingerprint as (hash(fp) - bucket) mod bucketCount. Applying it twice returns the
+     * original bucket, and it works for any number of buckets, not just powers of two.
+     * @param bucket one of the fingerprint's buckets
+     * @param fp fingerprint
+     * @return the fingerprint's other bucket
+     */
+    private int alternateBucket(int bucket, long fp) {
+        long h = mix(fp) & Long.MAX_VALUE;
+        return (int) Math.floorMod(h % this.bucketCount - bucket, (long) this.bucketCount);
+    }
+
+    /**
+     * Scrambles a fingerprint with the MurmurHash3 64-bit finalizer.
+     * @param fp fingerprint
+     * @return scrambled fingerprint
+     */
+    private static long mix(long fp) {
+        long h = fp;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Stores a fingerprint in the first empty slot of a bucket.
+     * @param bucket bucket index
+     * @param fp fingerprint
+     * @return true if stored, false if the bucket is full
+     */
+    private boolean insertIntoBucket(int bucket, long fp) {
+        for (int slot = 0; slot < BUCKET_SIZE; slot++) {
+            if (getFingerprint(bucket, slot) == 0) {
+                setFingerprint(bucket, slot, fp);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Clears the first slot of a bucket holding a fingerprint.
+     * @param bucket bucket index
+     * @param fp fingerprint
+     * @return true if cleared, false if not found
+     */
+    private boolean removeFromBucket(int bucket, long fp) {
+        for (int slot = 0; slot < BUCKET_SIZE; slot++) {
+            if (getFingerprint(bucket, slot) == fp) {
+                setFingerprint(bucket, slot, 0);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks a bucket for a fingerprint.
+     * @param bucket bucket index
+     * @param fp fingerprint
+     * @return true if found, false otherwise
+     */
+    private boolean bucketContains(int bucket, long fp) {
+        for (int slot = 0; slot < BUCKET_SIZE; slot++) {
+            if (getFingerprint(bucket, slot) == fp) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Reads the fingerprint in a slot.
+     * @param bucket bucket index
+     * @param slot slot index within bucket
+     * @return fingerprint, or 0 if the slot is empty
+     */
+    private long getFingerprint(int bucket, int slot) {
+        long bitPos = ((long) bucket * BUCKET_SIZE + slot) * this.f;
+        int wordIndex = (int) (bitPos >>> 6);
+        int shift = (int) (bitPos & 63);
+        long value = this.table[wordIndex] >>> shift;
+        if (shift + this.f > 64) {
+            value |= this.table[wordIndex + 1] << (64 - shift);
+        }
+
+        return value & this.fingerprintMask;
+    }
+
+    /**
+     * Overwrites the fingerprint in a slot.
+     * @param bucket bucket index
+     * @param slot slot index within bucket
+     * @param fp fingerprint, or 0 to empty the slot
+     */
+    private void setFingerprint(int bucket, int slot, long fp) {
+        long bitPos = ((long) bucket * BUCKET_SIZE + slot) * this.f;
+        int wordIndex = (int) (bitPos >>> 6);
+        int shift = (int) (bitPos & 63);
+        this.table[wordIndex] = (this.table[wordIndex] & ~(this.fingerprintMask << shift)) | (fp << shift);
+        if (shift + this.f > 64) {
+            int spill = 64 - shift;
+            this.table[wordIndex + 1] = (this.table[wordIndex + 1] & ~(this.fingerprintMask >>> spill))
+                    | (fp >>> spill);
+        }
+    }
+
+    /**
+     * Getter for number of bits the filter stores elements in.
+     * @return number of bits
+     */
+    @Override
+    public long getBitSize() {
+        return (long) this.bucketCount * BUCKET_SIZE * this.f;
+    }
+
+    /**
+     * Getter for number of buckets.
+     * @return number of buckets
+     */
+    public int getBucketCount() {
+        return this.bucketCount;
+    }
+
+    /**
+     * Getter for fingerprint size in bits.
+     * @return fingerprint size
+     */
+    public int getFingerprintBits() {
+        return this.f;
+    }
+
+    /**
+     * Getter for number of elements stored.
+     * @return number of elements stored
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Checks if the filter is full. A full filter rejects further adds until an element is removed.
+     * @return true if full, false otherwise
+     */
+    public boolean isFull() {
+        return this.hasVictim;
+    }
+}
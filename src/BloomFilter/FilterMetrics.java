@@ -0,0 +1,274 @@
+package BloomFilter;
+
+import BloomFilterUtilities.LatencyHistogram;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Metrics of a BloomFilter, created by BloomFilter.enableMetrics. Counters are LongAdders, so readers such as a JMX
+ * client never contend with the filter's thread. Fill and estimate gauges are read from the filter on demand, and
+ * latency histograms are only kept when requested.
+ */
+public class FilterMetrics implements FilterMetricsMXBean {
+    private static Logger logger = Logger.getLogger(FilterMetrics.class.getName());
+
+    private BloomFilter filter;
+    private LongAdder inserts = new LongAdder();
+    private LongAdder queries = new LongAdder();
+    private LongAdder positives = new LongAdder();
+    private LatencyHistogram addLatency;    // null unless timed
+    private LatencyHistogram containsLatency;   // null unless timed
+    private ObjectName objectName;
+
+    /**
+     * Constructor that initializes metrics of a filter.
+     * @param filter filter to report on
+     * @param timed true to keep latency histograms of single adds and lookups
+     */
+    FilterMetrics(BloomFilter filter, boolean timed) {
+        this.filter = filter;
+        if (timed) {
+            this.addLatency = new LatencyHistogram();
+            this.containsLatency = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Reads the clock if latencies are kept.
+     * @return current time in nanoseconds, or 0 if latencies are not kept
+     */
+    long start() {
+        return this.addLatency != null ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records a single add.
+     * @param start value of start() before the add
+     */
+    void recordInsert(long start) {
+        this.inserts.increment();
+        if (this.addLatency != null) {
+            this.addLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records a single lookup.
+     * @param positive result of the lookup
+     * @param start value of start() before the lookup
+     */
+    void recordQuery(boolean positive, long start) {
+        this.queries.increment();
+        if (positive) {
+            this.positives.increment();
+        }
+        if (this.containsLatency != null) {
+            this.containsLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records a batch of adds.
+     * @param count number of elements added
+     */
+    void recordInserts(long count) {
+        this.inserts.add(count);
+    }
+
+    /**
+     * Records a batch of lookups.
+     * @param count number of elements checked
+     * @param positiveCount number of elements found
+     */
+    void recordQueries(long count, long positiveCount) {
+        this.queries.add(count);
+        this.positives.add(positiveCount);
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server under BloomFilter:type=FilterMetrics,name=name.
+     * @param name name of the filter
+     * @return 0 if successful, -1 otherwise
+     */
+    public int register(String name) throws IllegalArgumentException {
+        if (name == null) {
+            throw new IllegalArgumentException("Invalid null argument for name.");
+        }
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("BloomFilter:type=FilterMetrics,name=" + ObjectName.quote(name));
+            server.registerMBean(this, objectName);
+            this.objectName = objectName;
+            return 0;
+        } catch (JMException jme) {
+            logger.log(Level.SEVERE, "Failed to register metrics with exception: " + jme);
+            return -1;
+        }
+    }
+
+    /**
+     * Unregisters the metrics from the platform MBean server if registered.
+     */
+    public void unregister() {
+        if (this.objectName == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.objectName);
+        } catch (JMException jme) {
+            logger.log(Level.SEVERE, "Failed to unregister metrics with exception: " + jme);
+        }
+        this.objectName = null;
+    }
+
+    /**
+     * Getter for number of elements added since metrics were enabled.
+     * @return number of elements added
+     */
+    @Override
+    public long getInsertCount() {
+        return this.inserts.sum();
+    }
+
+    /**
+     * Getter for number of elements checked since metrics were enabled.
+     * @return number of elements checked
+     */
+    @Override
+    public long getQueryCount() {
+        return this.queries.sum();
+    }
+
+    /**
+     * Getter for number of checked elements found.
+     * @return number of positive results
+     */
+    @Override
+    public long getPositiveCount() {
+        return this.positives.sum();
+    }
+
+    /**
+     * Getter for fraction of checked elements found.
+     * @return positive rate, or 0 if nothing was checked
+     */
+    @Override
+    public double getPositiveRate() {
+        long queryCount = getQueryCount();
+        return queryCount == 0 ? 0 : (double) getPositiveCount() / queryCount;
+    }
+
+    /**
+     * Getter for number of bits set in the filter.
+     * @return number of set bits
+     */
+    @Override
+    public long getSetBitCount() {
+        return this.filter.getSetBitCount();
+    }
+
+    /**
+     * Getter for number of bits the filter stores elements in.
+     * @return number of bits
+     */
+    @Override
+    public long getBitSize() {
+        return this.filter.getBitSize();
+    }
+
+    /**
+     * Getter for fraction of bits set in the filter.
+     * @return fill ratio
+     */
+    @Override
+    public double getFillRatio() {
+        return this.filter.getFillRatio();
+    }
+
+    /**
+     * Getter for number of distinct elements estimated from the set bits.
+     * @return estimated number of distinct elements
+     */
+    @Override
+    public double getEstimatedElementCount() {
+        return this.filter.estimateCardinality();
+    }
+
+    /**
+     * Getter for false positive rate estimated from the fill ratio.
+     * @return estimated false positive rate
+     */
+    @Override
+    public double getEstimatedFpr() {
+        return this.filter.estimateFpr();
+    }
+
+    /**
+     * Getter for false positive rate the filter was sized for.
+     * @return target false positive rate, or NaN if unknown
+     */
+    @Override
+    public double getConfiguredFpr() {
+        return this.filter.getFpr();
+    }
+
+    /**
+     * Getter for median latency of single adds.
+     * @return latency in nanoseconds, or -1 if latencies are not kept
+     */
+    @Override
+    public long getAddLatencyP50Nanos() {
+        return this.addLatency == null ? -1 : this.addLatency.getValueAtPercentile(50);
+    }
+
+    /**
+     * Getter for 99th percentile latency of single adds.
+     * @return latency in nanoseconds, or -1 if latencies are not kept
+     */
+    @Override
+    public long getAddLatencyP99Nanos() {
+        return this.addLatency == null ? -1 : this.addLatency.getValueAtPercentile(99);
+    }
+
+    /**
+     * Getter for median latency of single lookups.
+     * @return latency in nanoseconds, or -1 if latencies are not kept
+     */
+    @Override
+    public long getContainsLatencyP50Nanos() {
+        return this.containsLatency == null ? -1 : this.containsLatency.getValueAtPercentile(50);
+    }
+
+    /**
+     * Getter for 99th percentile latency of single lookups.
+     * @return latency in nanoseconds, or -1 if latencies are not kept
+     */
+    @Override
+    public long getContainsLatencyP99Nanos() {
+        return this.containsLatency == null ? -1 : this.containsLatency.getValueAtPercentile(99);
+    }
+
+    /**
+     * Getter for latency histogram of single adds.
+     * @return histogram, or null if latencies are not kept
+     */
+    public LatencyHistogram getAddLatency() {
+        return this.addLatency;
+    }
+
+    /**
+     * Getter for latency histogram of single lookups.
+     * @return histogram, or null if latencies are not kept
+     */
+    public LatencyHistogram getContainsLatency() {
+        return this.containsLatency;
+    }
+}
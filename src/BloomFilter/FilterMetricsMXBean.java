@@ -0,0 +1,34 @@
+package BloomFilter;
+
+/**
+ * JMX view of the metrics of a BloomFilter.
+ */
+public interface FilterMetricsMXBean {
+    long getInsertCount();
+
+    long getQueryCount();
+
+    long getPositiveCount();
+
+    double getPositiveRate();
+
+    long getSetBitCount();
+
+    long getBitSize();
+
+    double getFillRatio();
+
+    double getEstimatedElementCount();
+
+    double getEstimatedFpr();
+
+    double getConfiguredFpr();
+
+    long getAddLatencyP50Nanos();
+
+    long getAddLatencyP99Nanos();
+
+    long getContainsLatencyP50Nanos();
+
+    long getContainsLatencyP99Nanos();
+}
@@ -0,0 +1,309 @@
+package BloomFilter;
+
+import BloomFilterUtilities.DoubleHashFunction;
+import BloomFilterUtilities.FilterSizing;
+import BloomFilterUtilities.Funnel;
+import BloomFilterUtilities.FunnelBuffer;
+import BloomFilterUtilities.HashStrategy;
+import BloomFilterUtilities.LongBitArray;
+import BloomFilterUtilities.Serializer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * A 64-bit addressable BloomFilter implementation for filters larger than 2^31 bits. Bits are stored in a segmented
+ * LongBitArray and indexes are reduced from the 128-bit hash in long arithmetic.
+ */
+public class LongBloomFilter implements MembershipFilter {
+    private long m;  // size of LongBloomFilter
+    private int k;  // number of hash functions
+    private LongBitArray bits;
+    private DoubleHashFunction hashFunction;
+    private long elementCount;  // number of add calls, including repeats
+
+    private static Logger logger = Logger.getLogger(LongBloomFilter.class.getName());
+
+    /**
+     * Constructor that initializes LongBloomFilter given expected number of elements and target false-positive rate.
+     * @param n expected number of elements to be stored by LongBloomFilter.
+     * @param fpr target false positive rate
+     */
+    public LongBloomFilter(long n, double fpr) throws IllegalArgumentException {
+        FilterSizing.validate(n, fpr);
+
+        // initialize m and k
+        double optimalBits = Math.ceil(FilterSizing.optimalBits(n, fpr));
+        if (optimalBits >= Long.MAX_VALUE) {
+            throw new IllegalArgumentException("Filter is too large for a LongBloomFilter.");
+        }
+        this.m = Math.max(1, (long) optimalBits);
+        this.k = FilterSizing.optimalHashes(this.m, n);
+
+        // initialize bit array and hash function
+        this.bits = new LongBitArray(this.m);
+        this.hashFunction = new DoubleHashFunction(this.m, this.k);
+    }
+
+    /**
+     * Constructor that initializes an empty LongBloomFilter with explicit parameters, used to restore snapshots and to
+     * create filters compatible with an existing one.
+     * @param m size of bit array
+     * @param k number of hash functions
+     */
+    LongBloomFilter(long m, int k) {
+        this.m = m;
+        this.k = k;
+        this.bits = new LongBitArray(m);
+        this.hashFunction = new DoubleHashFunction(m, k);
+    }
+
+    /**
+     * Adds a serializable object to the LongBloomFilter.
+     * @param s serializable object to add
+     */
+    @Override
+    public void add(Serializable s) {
+        byte[] byteArr = Serializer.serialize(s);
+        addBytes(byteArr, 0, byteArr.length);
+    }
+
+    /**
+     * Adds an element encoded with a funnel to the LongBloomFilter.
+     * @param element element to add
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     */
+    @Override
+    public <T> void add(T element, Funnel<? super T> funnel) throws IllegalArgumentException {
+        FunnelBuffer buffer = FunnelBuffer.encode(element, funnel);
+        addBytes(buffer.array(), 0, buffer.length());
+    }
+
+    /**
+     * Checks if serializable object is in LongBloomFilter.
+     * @param s serializable object to check
+     * @return true if object is in LongBloomFilter, false otherwise
+     */
+    @Override
+    public boolean contains(Serializable s) {
+        byte[] byteArr = Serializer.serialize(s);
+        return containsBytes(byteArr, 0, byteArr.length);
+    }
+
+    /**
+     * Checks if an element encoded with a funnel is in LongBloomFilter.
+     * @param element element to check
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     * @return true if element is in LongBloomFilter, false otherwise
+     */
+    @Override
+    public <T> boolean contains(T element, Funnel<? super T> funnel) throws IllegalArgumentException {
+        FunnelBuffer buffer = FunnelBuffer.encode(element, funnel);
+        return containsBytes(buffer.array(), 0, buffer.length());
+    }
+
+    /**
+     * Sets the bit indexes of an encoded element.
+     * @param data encoded element
+     * @param offset offset of the first byte of the element
+     * @param length number of bytes in the element
+     */
+    private void addBytes(byte[] data, int offset, int length) {
+        this.elementCount++;
+        long[] h = this.hashFunction.hash128(data, offset, length);
+        for (int i = 0; i < this.k; i++) {
+            this.bits.set(this.hashFunction.longIndex(h[0], h[1], i));
+        }
+    }
+
+    /**
+     * Checks the bit indexes of an encoded element.
+     * @param data encoded element
+     * @param offset offset of the first byte of the element
+     * @param length number of bytes in the element
+     * @return true if all indexes are set, false otherwise
+     */
+    private boolean containsBytes(byte[] data, int offset, int length) {
+        long[] h = this.hashFunction.hash128(data, offset, length);
+        for (int i = 0; i < this.k; i++) {
+            if (!this.bits.get(this.hashFunction.longIndex(h[0], h[1], i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes a binary snapshot of the LongBloomFilter to a stream. The stream is not closed.
+     * @param out stream to write to
+     * @return 0 if successful, -1 otherwise
+     */
+    public int writeTo(OutputStream out) throws IllegalArgumentException {
+        if (out == null) {
+            throw new IllegalArgumentException("Invalid null argument for out.");
+        }
+
+        return writeTo(Channels.newChannel(out));
+    }
+
+    /**
+     * Writes a binary snapshot of the LongBloomFilter to a channel. The channel is not closed.
+     * @param channel channel to write to
+     * @return 0 if successful, -1 otherwise
+     */
+    public int writeTo(WritableByteChannel channel) throws IllegalArgumentException {
+        return writeTo(channel, false);
+    }
+
+    /**
+     * Writes a compressed snapshot of the LongBloomFilter to a stream, which readFrom also reads. The stream is not
+     * closed.
+     * @param out stream to write to
+     * @return 0 if successful, -1 otherwise
+     */
+    public int writeCompressedTo(OutputStream out) throws IllegalArgumentException {
+        if (out == null) {
+            throw new IllegalArgumentException("Invalid null argument for out.");
+        }
+
+        return writeTo(Channels.newChannel(out), true);
+    }
+
+    /**
+     * Writes a compressed snapshot of the LongBloomFilter to a channel, which readFrom also reads. The channel is not
+     * closed.
+     * @param channel channel to write to
+     * @return 0 if successful, -1 otherwise
+     */
+    public int writeCompressedTo(WritableByteChannel channel) throws IllegalArgumentException {
+        return writeTo(channel, true);
+    }
+
+    /**
+     * Writes a raw or compressed snapshot of the LongBloomFilter to a channel.
+     * @param channel channel to write to
+     * @param compressed true to write a compressed snapshot
+     * @return 0 if successful, -1 otherwise
+     */
+    private int writeTo(WritableByteChannel channel, boolean compressed) throws IllegalArgumentException {
+        if (channel == null) {
+            throw new IllegalArgumentException("Invalid null argument for channel.");
+        }
+
+        Snapshots.Header header = new Snapshots.Header();
+        header.m = this.m;
+        header.k = this.k;
+        header.hashStrategy = HashStrategy.DOUBLE_MURMUR3_128;
+        header.elementCount = this.elementCount;
+        try {
+            if (compressed) {
+                Snapshots.writeCompressed(channel, header, this.bits::getWord);
+            } else {
+                Snapshots.write(channel, header, this.bits::getWord);
+            }
+            return 0;
+        } catch (IOException ioe) {
+            logger.log(Level.SEVERE, "Failed to write snapshot with exception: " + ioe);
+            return -1;
+        }
+    }
+
+    /**
+     * Reads a LongBloomFilter from a raw or compressed binary snapshot in a stream. The stream is not closed.
+     * @param in stream to read from
+     * @return LongBloomFilter or null if error occurs
+     */
+    public static LongBloomFilter readFrom(InputStream in) throws IllegalArgumentException {
+        if (in == null) {
+            throw new IllegalArgumentException("Invalid null argument for in.");
+        }
+
+        return readFrom(Channels.newChannel(in));
+    }
+
+    /**
+     * Reads a LongBloomFilter from a raw or compressed binary snapshot in a channel. The channel is not closed.
+     * @param channel channel to read from
+     * @return LongBloomFilter or null if error occurs
+     */
+    public static LongBloomFilter readFrom(ReadableByteChannel channel) throws IllegalArgumentException {
+        if (channel == null) {
+            throw new IllegalArgumentException("Invalid null argument for channel.");
+        }
+
+        try {
+            CRC32C crc = new CRC32C();
+            Snapshots.Header header = Snapshots.readHeader(channel, crc);
+            if (header.hashStrategy != HashStrategy.DOUBLE_MURMUR3_128 || header.seed != 0) {
+                throw new IOException("Snapshot parameters are not supported by LongBloomFilter.");
+            }
+            if (header.wordCount() * 8 > Runtime.getRuntime().maxMemory()) {
+                throw new IOException("Snapshot filter does not fit in the heap.");
+            }
+
+            LongBloomFilter bf = new LongBloomFilter(header.m, header.k);
+            if (header.isCompressed()) {
+                Snapshots.readBits(channel, header, bf.bits::set, crc);
+            } else {
+                Snapshots.readWords(channel, header, bf.bits::setWord, crc);
+            }
+            bf.elementCount = header.elementCount;
+            return bf;
+        } catch (IOException ioe) {
+            logger.log(Level.SEVERE, "Failed to read snapshot with exception: " + ioe);
+            return null;
+        }
+    }
+
+    /**
+     * Getter for number of elements added, counting repeated adds of the same element.
+     * @return number of elements added
+     */
+    public long getElementCount() {
+        return this.elementCount;
+    }
+
+    /**
+     * Getter for number of bits the filter stores elements in.
+     * @return number of bits
+     */
+    @Override
+    public long getBitSize() {
+        return getM();
+    }
+
+    /**
+     * Getter for size of bit array.
+     * @return size of bit array
+     */
+    public long getM() {
+        return this.m;
+    }
+
+    /**
+     * Getter for number of hash functions.
+     * @return number of hash functions
+     */
+    public int getK() {
+        return this.k;
+    }
+
+    /**
+     * Getter for bit array.
+     * @return bit array
+     */
+    public LongBitArray getBitArray() {
+        return this.bits;
+    }
+}
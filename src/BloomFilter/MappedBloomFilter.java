@@ -0,0 +1,424 @@
+package BloomFilter;
+
+import BloomFilterUtilities.DoubleHashFunction;
+import BloomFilterUtilities.FilterSizing;
+import BloomFilterUtilities.Funnel;
+import BloomFilterUtilities.FunnelBuffer;
+import BloomFilterUtilities.HashStrategy;
+import BloomFilterUtilities.Serializer;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * A BloomFilter implementation whose bit array lives in a memory-mapped file. Opening a filter maps the file instead
+ * of reading it, the bits stay off the Java heap, and the page cache is shared by every process that maps the file.
+ * The file holds a 64-byte header followed by the bit array as little-endian 64-bit words.
+ */
+public class MappedBloomFilter implements MembershipFilter {
+    /**
+     * Access modes for a mapped filter.
+     */
+    public enum Mode {
+        READ_ONLY,
+        READ_WRITE
+    }
+
+    private static final int MAGIC = 0x424c4d46;    // "BLMF"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int SEGMENT_SHIFT = 30;    // 1 GB per mapped segment
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private static Logger logger = Logger.getLogger(MappedBloomFilter.class.getName());
+
+    private long m;  // size of MappedBloomFilter
+    private int k;  // number of hash functions
+    private Mode mode;
+    private FileChannel channel;
+    private MappedByteBuffer[] segments;
+    private DoubleHashFunction hashFunction;
+
+    /**
+     * Constructor that maps the bit array of an open filter file.
+     * @param channel channel of filter file
+     * @param mode access mode
+     * @param m size of bit array
+     * @param k number of hash functions
+     * @param seed hash function seed
+     */
+    private MappedBloomFilter(FileChannel channel, Mode mode, long m, int k, int seed) throws IOException {
+        this.m = m;
+        this.k = k;
+        this.mode = mode;
+        this.channel = channel;
+        this.hashFunction = new DoubleHashFunction(m, k, seed);
+
+        // map the bit array in segments of at most 1 GB
+        long dataBytes = ((m + 63) >>> 6) * 8;
+        int segmentCount = (int) ((dataBytes + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        FileChannel.MapMode mapMode = mode == Mode.READ_ONLY ? FileChannel.MapMode.READ_ONLY
+                : FileChannel.MapMode.READ_WRITE;
+        this.segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long start = (long) i << SEGMENT_SHIFT;
+            long size = Math.min(dataBytes - start, 1L << SEGMENT_SHIFT);
+            this.segments[i] = channel.map(mapMode, HEADER_BYTES + start, size);
+            this.segments[i].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * Creates a new filter file given expected number of elements and target false-positive rate, and maps it in
+     * read-write mode. An existing file at path is overwritten.
+     * @param path path of filter file
+     * @param n expected number of elements to be stored by MappedBloomFilter.
+     * @param fpr target false positive rate
+     * @return mapped filter or null if error occurs
+     */
+    public static MappedBloomFilter create(Path path, long n, double fpr) throws IllegalArgumentException {
+        if (path == null) {
+            throw new IllegalArgumentException("Invalid null argument for path.");
+        }
+        FilterSizing.validate(n, fpr);
+
+        long m = Math.max(1, (long) Math.ceil(FilterSizing.optimalBits(n, fpr)));
+        int k = FilterSizing.optimalHashes(m, n);
+        try {
+            return createFile(path, m, k, 0);
+        } catch (IOException ioe) {
+            logger.log(Level.SEVERE, "Failed to create mapped filter with exception: " + ioe);
+            return null;
+        }
+    }
+
+    /**
+     * Creates a new filter file from a raw or compressed snapshot written by BloomFilter or LongBloomFilter with the
+     * double hashing strategy, and maps it in read-write mode. Bits are written into the mapping as they are decoded,
+     * without an intermediate copy of the bit array. The snapshot is decoded into a temporary file next to path, which
+     * replaces any existing file at path only once the snapshot has been verified, so a corrupt snapshot never leaves
+     * a partly filled filter behind.
+     * @param snapshot channel to read the snapshot from, which is not closed
+     * @param path path of filter file
+     * @return mapped filter or null if error occurs
+     */
+    public static MappedBloomFilter readFrom(ReadableByteChannel snapshot, Path path) throws IllegalArgumentException {
+        if (snapshot == null) {
+            throw new IllegalArgumentException("Invalid null argument for snapshot.");
+        } else if (path == null) {
+            throw new IllegalArgumentException("Invalid null argument for path.");
+        }
+
+        Path temp = null;
+        MappedBloomFilter bf = null;
+        try {
+            CRC32C crc = new CRC32C();
+            Snapshots.Header header = Snapshots.readHeader(snapshot, crc);
+            if (header.hashStrategy != HashStrategy.DOUBLE_MURMUR3_128) {
+                throw new IOException("Snapshot parameters are not supported by MappedBloomFilter.");
+            }
+
+            Path absolute = path.toAbsolutePath();
+            temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".part");
+            bf = createFile(temp, header.m, header.k, header.seed);
+            MappedBloomFilter target = bf;
+            if (header.isCompressed()) {
+                Snapshots.readBits(snapshot, header, target::setBit, crc);
+            } else {
+                Snapshots.readWords(snapshot, header, target::setWord, crc);
+            }
+            bf.force();
+            bf.close();
+            bf = null;
+
+            // replace path with the verified file, then map it where it now lives
+            try {
+                Files.move(temp, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException amnse) {
+                Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+            }
+            temp = null;
+            return open(absolute, Mode.READ_WRITE);
+        } catch (IOException ioe) {
+            logger.log(Level.SEVERE, "Failed to read snapshot with exception: " + ioe);
+            return null;
+        } finally {
+            // unless the move succeeded, discard the partial file whatever was thrown
+            if (bf != null) {
+                bf.close();
+            }
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException deleteFailure) {
+                    logger.log(Level.SEVERE, "Failed to delete " + temp + " with exception: " + deleteFailure);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a new filter file with a zeroed bit array and maps it in read-write mode.
+     * @param path path of filter file
+     * @param m size of bit array
+     * @param k number of hash functions
+     * @param seed hash function seed
+     * @return mapped filter
+     */
+    private static MappedBloomFilter createFile(Path path, long m, int k, int seed) throws IOException {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            // write header; the bit array is zero-filled when the file is extended by the mapping
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(m).putInt(k).putInt(seed);
+            header.clear();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+
+            return new MappedBloomFilter(channel, Mode.READ_WRITE, m, k, seed);
+        } catch (IOException ioe) {
+            closeQuietly(channel);
+            throw ioe;
+        }
+    }
+
+    /**
+     * Opens and maps an existing filter file.
+     * @param path path of filter file
+     * @param mode access mode
+     * @return mapped filter or null if error occurs
+     */
+    public static MappedBloomFilter open(Path path, Mode mode) throws IllegalArgumentException {
+        if (path == null) {
+            throw new IllegalArgumentException("Invalid null argument for path.");
+        } else if (mode == null) {
+            throw new IllegalArgumentException("Invalid null argument for mode.");
+        }
+
+        FileChannel channel = null;
+        try {
+            channel = mode == Mode.READ_ONLY ? FileChannel.open(path, StandardOpenOption.READ)
+                    : FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            // read and validate header
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    break;
+                }
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException("Not a mapped filter file.");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported mapped filter version " + version + ".");
+            }
+            long m = header.getLong();
+            int k = header.getInt();
+            int seed = header.getInt();
+            if (m <= 0 || k <= 0 || channel.size() < HEADER_BYTES + ((m + 63) >>> 6) * 8) {
+                throw new IOException("Corrupt mapped filter header.");
+            }
+
+            return new MappedBloomFilter(channel, mode, m, k, seed);
+        } catch (IOException ioe) {
+            logger.log(Level.SEVERE, "Failed to open mapped filter with exception: " + ioe);
+            closeQuietly(channel);
+            return null;
+        }
+    }
+
+    /**
+     * Adds a serializable object to the MappedBloomFilter.
+     * @param s serializable object to add
+     */
+    @Override
+    public void add(Serializable s) throws IllegalStateException {
+        byte[] byteArr = Serializer.serialize(s);
+        addBytes(byteArr, 0, byteArr.length);
+    }
+
+    /**
+     * Adds an element encoded with a funnel to the MappedBloomFilter.
+     * @param element element to add
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     */
+    @Override
+    public <T> void add(T element, Funnel<? super T> funnel) throws IllegalArgumentException, IllegalStateException {
+        FunnelBuffer buffer = FunnelBuffer.encode(element, funnel);
+        addBytes(buffer.array(), 0, buffer.length());
+    }
+
+    /**
+     * Checks if serializable object is in MappedBloomFilter.
+     * @param s serializable object to check
+     * @return true if object is in MappedBloomFilter, false otherwise
+     */
+    @Override
+    public boolean contains(Serializable s) {
+        byte[] byteArr = Serializer.serialize(s);
+        return containsBytes(byteArr, 0, byteArr.length);
+    }
+
+    /**
+     * Checks if an element encoded with a funnel is in MappedBloomFilter.
+     * @param element element to check
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     * @return true if element is in MappedBloomFilter, false otherwise
+     */
+    @Override
+    public <T> boolean contains(T element, Funnel<? super T> funnel) throws IllegalArgumentException {
+        FunnelBuffer buffer = FunnelBuffer.encode(element, funnel);
+        return containsBytes(buffer.array(), 0, buffer.length());
+    }
+
+    /**
+     * Writes changes to the bit array through to the file.
+     */
+    public void force() {
+        if (this.mode == Mode.READ_WRITE) {
+            for (MappedByteBuffer segment : this.segments) {
+                segment.force();
+            }
+        }
+    }
+
+    /**
+     * Closes the filter file. The mapping stays valid until it is garbage collected, but the filter must not be used
+     * after it is closed.
+     */
+    public void close() {
+        try {
+            this.channel.close();
+        } catch (IOException ioe) {
+            logger.log(Level.SEVERE, "Failed to close mapped filter with exception: " + ioe);
+        }
+    }
+
+    /**
+     * Sets the bit indexes of an encoded element.
+     * @param data encoded element
+     * @param offset offset of the first byte of the element
+     * @param length number of bytes in the element
+     */
+    private void addBytes(byte[] data, int offset, int length) throws IllegalStateException {
+        if (this.mode == Mode.READ_ONLY) {
+            throw new IllegalStateException("Mapped filter is opened read-only.");
+        }
+
+        long[] h = this.hashFunction.hash128(data, offset, length);
+        for (int i = 0; i < this.k; i++) {
+            setBit(this.hashFunction.longIndex(h[0], h[1], i));
+        }
+    }
+
+    /**
+     * Sets a bit of the mapped bit array.
+     * @param index index of bit
+     */
+    private void setBit(long index) {
+        long byteOffset = (index >>> 6) << 3;
+        MappedByteBuffer segment = this.segments[(int) (byteOffset >>> SEGMENT_SHIFT)];
+        int position = (int) (byteOffset & SEGMENT_MASK);
+        segment.putLong(position, segment.getLong(position) | (1L << index));
+    }
+
+    /**
+     * Replaces a word of the mapped bit array.
+     * @param index index of word
+     * @param word new word
+     */
+    private void setWord(long index, long word) {
+        long byteOffset = index << 3;
+        this.segments[(int) (byteOffset >>> SEGMENT_SHIFT)].putLong((int) (byteOffset & SEGMENT_MASK), word);
+    }
+
+    /**
+     * Checks the bit indexes of an encoded element.
+     * @param data encoded element
+     * @param offset offset of the first byte of the element
+     * @param length number of bytes in the element
+     * @return true if all indexes are set, false otherwise
+     */
+    private boolean containsBytes(byte[] data, int offset, int length) {
+        long[] h = this.hashFunction.hash128(data, offset, length);
+        for (int i = 0; i < this.k; i++) {
+            long index = this.hashFunction.longIndex(h[0], h[1], i);
+            long byteOffset = (index >>> 6) << 3;
+            MappedByteBuffer segment = this.segments[(int) (byteOffset >>> SEGMENT_SHIFT)];
+            if ((segment.getLong((int) (byteOffset & SEGMENT_MASK)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Closes a channel after a failed create or open, logging any further failure.
+     * @param channel channel to close, may be null
+     */
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ioe) {
+                logger.log(Level.SEVERE, "Failed to close mapped filter with exception: " + ioe);
+            }
+        }
+    }
+
+    /**
+     * Getter for number of bits the filter stores elements in.
+     * @return number of bits
+     */
+    @Override
+    public long getBitSize() {
+        return getM();
+    }
+
+    /**
+     * Getter for size of bit array.
+     * @return size of bit array
+     */
+    public long getM() {
+        return this.m;
+    }
+
+    /**
+     * Getter for number of hash functions.
+     * @return number of hash functions
+     */
+    public int getK() {
+        return this.k;
+    }
+
+    /**
+     * Getter for access mode.
+     * @return access mode
+     */
+    public Mode getMode() {
+        return this.mode;
+    }
+}
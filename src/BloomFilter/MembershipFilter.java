@@ -0,0 +1,25 @@
+package BloomFilter;
+
+import BloomFilterUtilities.Funnel;
+
+import java.io.Serializable;
+
+/**
+ * An approximate set membership filter that elements can be added to. Lookups may return false positives at the
+ * filter's configured rate, but never false negatives for elements that were added and not removed.
+ */
+public interface MembershipFilter extends MembershipQuery {
+    /**
+     * Adds a serializable object to the filter.
+     * @param s serializable object to add
+     */
+    void add(Serializable s);
+
+    /**
+     * Adds an element encoded with a funnel to the filter.
+     * @param element element to add
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     */
+    <T> void add(T element, Funnel<? super T> funnel);
+}
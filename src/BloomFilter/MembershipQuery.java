@@ -0,0 +1,34 @@
+package BloomFilter;
+
+import BloomFilterUtilities.Funnel;
+
+import java.io.Serializable;
+
+/**
+ * The read-only side of an approximate set membership filter. Lookups may return false positives at the filter's
+ * configured rate, but never false negatives for elements the filter holds. Filters that are built once and never
+ * modified implement only this interface.
+ */
+public interface MembershipQuery {
+    /**
+     * Checks if serializable object is in the filter.
+     * @param s serializable object to check
+     * @return true if object is probably in the filter, false if it definitely is not
+     */
+    boolean contains(Serializable s);
+
+    /**
+     * Checks if an element encoded with a funnel is in the filter.
+     * @param element element to check
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     * @return true if element is probably in the filter, false if it definitely is not
+     */
+    <T> boolean contains(T element, Funnel<? super T> funnel);
+
+    /**
+     * Getter for number of bits the filter stores elements in.
+     * @return number of bits
+     */
+    long getBitSize();
+}
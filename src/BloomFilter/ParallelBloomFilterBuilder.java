@@ -0,0 +1,284 @@
+package BloomFilter;
+
+import BloomFilterUtilities.FilterSizing;
+import BloomFilterUtilities.Funnel;
+import BloomFilterUtilities.HashStrategy;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+/**
+ * Builds a BloomFilter from a large list or stream of elements on a ForkJoinPool. The input is split recursively,
+ * every worker thread adds its ranges to its own shard filter with identical parameters, and the shards are merged by
+ * OR-ing their bitsets. OR is commutative, so the result does not depend on how the work was scheduled.
+ */
+public class ParallelBloomFilterBuilder {
+    private static final int MIN_SPLIT_SIZE = 4096;
+
+    private int n;
+    private double fpr;
+    private HashStrategy hashStrategy;
+    private ForkJoinPool pool;
+
+    /**
+     * Constructor that initializes builder given expected number of elements, target false-positive rate and hashing
+     * strategy, running on the common ForkJoinPool.
+     * @param n expected number of elements to be stored by the BloomFilter.
+     * @param fpr target false positive rate
+     * @param hashStrategy strategy used to derive the k indexes of an element
+     */
+    public ParallelBloomFilterBuilder(int n, double fpr, HashStrategy hashStrategy) throws IllegalArgumentException {
+        this(n, fpr, hashStrategy, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor that initializes builder given expected number of elements, target false-positive rate, hashing
+     * strategy and pool.
+     * @param n expected number of elements to be stored by the BloomFilter.
+     * @param fpr target false positive rate
+     * @param hashStrategy strategy used to derive the k indexes of an element
+     * @param pool pool to build on
+     */
+    public ParallelBloomFilterBuilder(int n, double fpr, HashStrategy hashStrategy, ForkJoinPool pool)
+            throws IllegalArgumentException {
+        if (hashStrategy == null) {
+            throw new IllegalArgumentException("Invalid null argument for hashStrategy.");
+        } else if (pool == null) {
+            throw new IllegalArgumentException("Invalid null argument for pool.");
+        }
+        FilterSizing.validate(n, fpr);
+
+        this.n = n;
+        this.fpr = fpr;
+        this.hashStrategy = hashStrategy;
+        this.pool = pool;
+    }
+
+    /**
+     * Builds a BloomFilter from an array of elements encoded with a funnel.
+     * @param elements elements to add
+     * @param funnel funnel used to encode elements
+     * @param <T> type of elements
+     * @return BloomFilter holding every element
+     */
+    public <T> BloomFilter build(T[] elements, Funnel<? super T> funnel) throws IllegalArgumentException {
+        if (elements == null) {
+            throw new IllegalArgumentException("Invalid null argument for elements.");
+        }
+
+        return build(Arrays.asList(elements), funnel);
+    }
+
+    /**
+     * Builds a BloomFilter from a random-access list of elements encoded with a funnel.
+     * @param elements elements to add
+     * @param funnel funnel used to encode elements
+     * @param <T> type of elements
+     * @return BloomFilter holding every element
+     */
+    public <T> BloomFilter build(List<? extends T> elements, Funnel<? super T> funnel)
+            throws IllegalArgumentException {
+        if (elements == null) {
+            throw new IllegalArgumentException("Invalid null argument for elements.");
+        } else if (funnel == null) {
+            throw new IllegalArgumentException("Invalid null argument for funnel.");
+        }
+
+        return buildInternal(elements.size(), (shard, from, to) -> shard.addAll(elements.subList(from, to), funnel));
+    }
+
+    /**
+     * Builds a BloomFilter from an array of serializable objects, such as the lines returned by TextLoader.readText.
+     * Objects are added through Java serialization, exactly as BloomFilter.add(Serializable) would add them.
+     * @param elements serializable objects to add
+     * @return BloomFilter holding every object
+     */
+    public BloomFilter build(Object[] elements) throws IllegalArgumentException {
+        if (elements == null) {
+            throw new IllegalArgumentException("Invalid null argument for elements.");
+        }
+
+        return buildInternal(elements.length, (shard, from, to) -> {
+            for (int i = from; i < to; i++) {
+                shard.add((Serializable) elements[i]);
+            }
+        });
+    }
+
+    /**
+     * Builds a BloomFilter from a stream of elements encoded with a funnel, such as TextLoader.streamLineBytes with
+     * Funnels.BYTE_BUFFER. The stream's spliterator is split across the pool, so a memory-mapped file is consumed in
+     * parallel without being materialized.
+     * @param elements elements to add
+     * @param funnel funnel used to encode elements
+     * @param <T> type of elements
+     * @return BloomFilter holding every element
+     */
+    public <T> BloomFilter build(Stream<? extends T> elements, Funnel<? super T> funnel)
+            throws IllegalArgumentException {
+        if (elements == null) {
+            throw new IllegalArgumentException("Invalid null argument for elements.");
+        }
+
+        return build(elements.spliterator(), funnel);
+    }
+
+    /**
+     * Builds a BloomFilter from a spliterator of elements encoded with a funnel.
+     * @param elements elements to add
+     * @param funnel funnel used to encode elements
+     * @param <T> type of elements
+     * @return BloomFilter holding every element
+     */
+    public <T> BloomFilter build(Spliterator<? extends T> elements, Funnel<? super T> funnel)
+            throws IllegalArgumentException {
+        if (elements == null) {
+            throw new IllegalArgumentException("Invalid null argument for elements.");
+        } else if (funnel == null) {
+            throw new IllegalArgumentException("Invalid null argument for funnel.");
+        }
+
+        BloomFilter result = new BloomFilter(this.n, this.fpr, this.hashStrategy);
+        Map<Thread, BloomFilter> shards = new ConcurrentHashMap<>();
+        long splitSize = Math.max(1, elements.estimateSize() / (this.pool.getParallelism() * 8L));
+        this.pool.invoke(new SpliteratorTask<T>(result, shards, elements, funnel, splitSize));
+
+        // merge shards
+        for (BloomFilter shard : shards.values()) {
+            result.or(shard);
+        }
+
+        return result;
+    }
+
+    /**
+     * Adds a range of the input to a shard.
+     */
+    private interface RangeAdder {
+        void add(BloomFilter shard, int from, int to);
+    }
+
+    /**
+     * Splits the input range across the pool and merges the per-thread shards.
+     * @param size number of elements in the input
+     * @param adder adds a range of the input to a shard
+     * @return merged BloomFilter
+     */
+    private BloomFilter buildInternal(int size, RangeAdder adder) {
+        BloomFilter result = new BloomFilter(this.n, this.fpr, this.hashStrategy);
+        Map<Thread, BloomFilter> shards = new ConcurrentHashMap<>();
+        int splitSize = Math.max(MIN_SPLIT_SIZE, size / (this.pool.getParallelism() * 8));
+        this.pool.invoke(new BuildTask(result, shards, adder, 0, size, splitSize));
+
+        // merge shards
+        for (BloomFilter shard : shards.values()) {
+            result.or(shard);
+        }
+
+        return result;
+    }
+
+    /**
+     * A task that adds a range of the input to the shard of the worker thread running it. Tasks are never serialized.
+     */
+    @SuppressWarnings("serial")
+    private static class BuildTask extends RecursiveAction {
+        private BloomFilter template;
+        private Map<Thread, BloomFilter> shards;
+        private RangeAdder adder;
+        private int from;
+        private int to;
+        private int splitSize;
+
+        /**
+         * Constructor that initializes task for a range of the input.
+         * @param template filter whose parameters shards copy
+         * @param shards shard of each worker thread
+         * @param adder adds a range of the input to a shard
+         * @param from start of range, inclusive
+         * @param to end of range, exclusive
+         * @param splitSize largest range added without splitting
+         */
+        BuildTask(BloomFilter template, Map<Thread, BloomFilter> shards, RangeAdder adder, int from, int to,
+                  int splitSize) {
+            this.template = template;
+            this.shards = shards;
+            this.adder = adder;
+            this.from = from;
+            this.to = to;
+            this.splitSize = splitSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= this.splitSize) {
+                BloomFilter shard = this.shards.computeIfAbsent(Thread.currentThread(), t -> this.template.emptyCopy());
+                this.adder.add(shard, this.from, this.to);
+                return;
+            }
+
+            int mid = (this.from + this.to) >>> 1;
+            invokeAll(new BuildTask(this.template, this.shards, this.adder, this.from, mid, this.splitSize),
+                    new BuildTask(this.template, this.shards, this.adder, mid, this.to, this.splitSize));
+        }
+    }
+
+    /**
+     * A task that splits a spliterator until its estimated size is small enough, then adds its elements to the shard
+     * of the worker thread running it. Tasks are never serialized.
+     * @param <T> type of elements
+     */
+    @SuppressWarnings("serial")
+    private static class SpliteratorTask<T> extends RecursiveAction {
+        private BloomFilter template;
+        private Map<Thread, BloomFilter> shards;
+        private Spliterator<? extends T> elements;
+        private Funnel<? super T> funnel;
+        private long splitSize;
+
+        /**
+         * Constructor that initializes task for a spliterator.
+         * @param template filter whose parameters shards copy
+         * @param shards shard of each worker thread
+         * @param elements elements to add
+         * @param funnel funnel used to encode elements
+         * @param splitSize largest estimated size added without splitting
+         */
+        SpliteratorTask(BloomFilter template, Map<Thread, BloomFilter> shards, Spliterator<? extends T> elements,
+                        Funnel<? super T> funnel, long splitSize) {
+            this.template = template;
+            this.shards = shards;
+            this.elements = elements;
+            this.funnel = funnel;
+            this.splitSize = splitSize;
+        }
+
+        @Override
+        protected void compute() {
+            // fork off prefixes until the remaining part is small enough
+            List<SpliteratorTask<T>> forked = new ArrayList<>();
+            Spliterator<? extends T> prefix;
+            while (this.elements.estimateSize() > this.splitSize && (prefix = this.elements.trySplit()) != null) {
+                SpliteratorTask<T> task = new SpliteratorTask<>(this.template, this.shards, prefix, this.funnel,
+                        this.splitSize);
+                task.fork();
+                forked.add(task);
+            }
+
+            BloomFilter shard = this.shards.computeIfAbsent(Thread.currentThread(), t -> this.template.emptyCopy());
+            this.elements.forEachRemaining(element -> shard.add(element, this.funnel));
+
+            for (SpliteratorTask<T> task : forked) {
+                task.join();
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package BloomFilter;
+
+import BloomFilterUtilities.FilterSizing;
+import BloomFilterUtilities.Funnel;
+import BloomFilterUtilities.HashStrategy;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A scalable BloomFilter implementation that grows instead of degrading when more elements are added than expected.
+ * Elements go into the newest stage; once it holds its expected number of elements a new stage is chained with
+ * GROWTH_FACTOR times the capacity and TIGHTENING_RATIO times the false positive rate. The stage rates form a
+ * geometric series, so the overall false positive rate stays below the target however many stages are added. Stages
+ * are BloomFilters until a stage needs more bits than an int addresses, and LongBloomFilters from then on, so no stage
+ * is ever capped below its required size.
+ */
+public class ScalableBloomFilter implements MembershipFilter {
+    private static final int GROWTH_FACTOR = 2;
+    private static final double TIGHTENING_RATIO = 0.5;
+
+    private double fpr;  // target overall false positive rate
+    private List<MembershipFilter> stages;
+    private List<Long> capacities;
+    private long newestCount;   // elements added to the newest stage
+    private long elementCount;  // number of add calls, including repeats
+
+    /**
+     * Constructor that initializes ScalableBloomFilter given initial expected number of elements and target
+     * false-positive rate.
+     * @param n expected number of elements to be stored by the first stage.
+     * @param fpr target overall false positive rate
+     */
+    public ScalableBloomFilter(int n, double fpr) throws IllegalArgumentException {
+        FilterSizing.validate(n, fpr);
+
+        this.fpr = fpr;
+        this.stages = new ArrayList<>();
+        this.capacities = new ArrayList<>();
+        addStage(n);
+    }
+
+    /**
+     * Adds a serializable object to the ScalableBloomFilter.
+     * @param s serializable object to add
+     */
+    @Override
+    public void add(Serializable s) {
+        newestStage().add(s);
+        countAdd();
+    }
+
+    /**
+     * Adds an element encoded with a funnel to the ScalableBloomFilter.
+     * @param element element to add
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     */
+    @Override
+    public <T> void add(T element, Funnel<? super T> funnel) throws IllegalArgumentException {
+        newestStage().add(element, funnel);
+        countAdd();
+    }
+
+    /**
+     * Checks if serializable object is in ScalableBloomFilter. The newest stage is checked first.
+     * @param s serializable object to check
+     * @return true if object is in ScalableBloomFilter, false otherwise
+     */
+    @Override
+    public boolean contains(Serializable s) {
+        for (int i = this.stages.size() - 1; i >= 0; i--) {
+            if (this.stages.get(i).contains(s)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks if an element encoded with a funnel is in ScalableBloomFilter. The newest stage is checked first.
+     * @param element element to check
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     * @return true if element is in ScalableBloomFilter, false otherwise
+     */
+    @Override
+    public <T> boolean contains(T element, Funnel<? super T> funnel) throws IllegalArgumentException {
+        for (int i = this.stages.size() - 1; i >= 0; i--) {
+            if (this.stages.get(i).contains(element, funnel)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Counts an add against the newest stage, chaining a new stage once the newest one is full.
+     */
+    private void countAdd() {
+        this.newestCount++;
+        this.elementCount++;
+        long capacity = this.capacities.get(this.capacities.size() - 1);
+        if (this.newestCount >= capacity) {
+            addStage(capacity * GROWTH_FACTOR);
+        }
+    }
+
+    /**
+     * Chains a new stage. Stage i gets false positive rate fpr * (1 - r) * r^i, whose sum over all stages is fpr.
+     * @param capacity expected number of elements of the new stage
+     */
+    private void addStage(long capacity) {
+        double stageFpr = this.fpr * (1 - TIGHTENING_RATIO) * Math.pow(TIGHTENING_RATIO, this.stages.size());
+        if (Math.ceil(FilterSizing.optimalBits(capacity, stageFpr)) > Integer.MAX_VALUE) {
+            this.stages.add(new LongBloomFilter(capacity, stageFpr));
+        } else {
+            this.stages.add(new BloomFilter((int) capacity, stageFpr, HashStrategy.DOUBLE_MURMUR3_128));
+        }
+        this.capacities.add(capacity);
+        this.newestCount = 0;
+    }
+
+    /**
+     * Getter for the stage that receives new elements.
+     * @return newest stage
+     */
+    private MembershipFilter newestStage() {
+        return this.stages.get(this.stages.size() - 1);
+    }
+
+    /**
+     * Getter for number of chained stages.
+     * @return number of stages
+     */
+    public int getStageCount() {
+        return this.stages.size();
+    }
+
+    /**
+     * Getter for total size of all stages' bit arrays.
+     * @return total size of bit arrays
+     */
+    @Override
+    public long getBitSize() {
+        return getM();
+    }
+
+    /**
+     * Getter for total size of all stages' bit arrays.
+     * @return total size of bit arrays
+     */
+    public long getM() {
+        long m = 0;
+        for (MembershipFilter stage : this.stages) {
+            m += stage.getBitSize();
+        }
+
+        return m;
+    }
+
+    /**
+     * Getter for number of elements added, counting repeated adds of the same element.
+     * @return number of elements added
+     */
+    public long getElementCount() {
+        return this.elementCount;
+    }
+}
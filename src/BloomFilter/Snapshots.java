@@ -0,0 +1,540 @@
+package BloomFilter;
+
+import BloomFilterUtilities.HashStrategy;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads and writes the binary snapshot format shared by the heap-backed filters. A snapshot is a 40-byte header,
+ * the bit array as little-endian 64-bit words, and an 8-byte trailer holding the CRC32C of everything before it.
+ * Header layout, all little-endian: magic "BLMS" (int), version (int), m (long), k (int), hash strategy (int),
+ * seed (int), reserved (int), element count (long).
+ * <p>
+ * A compressed snapshot (version 2) stores the Rice parameter b in the reserved header field and replaces the words
+ * with the number of set bits (long), the payload length in bytes (long) and a payload that Rice codes the gap before
+ * each set bit: the gap shifted right by b in unary, then its low b bits, packed least significant bit first.
+ */
+final class Snapshots {
+    static final int MAGIC = 0x424c4d53;    // "BLMS"
+    static final int VERSION = 1;
+    static final int COMPRESSED_VERSION = 2;
+
+    private static final int HEADER_BYTES = 40;
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final int SEEDED_MURMUR3_32 = 0;
+    private static final int DOUBLE_MURMUR3_128 = 1;
+    private static final int MAX_RICE_BITS = 56;
+    private static final int MAX_HASHES = 1074;    // -log2 of the smallest positive double, the largest k sizing gives
+
+    /**
+     * Parameters stored in a snapshot header.
+     */
+    static final class Header {
+        int version = VERSION;
+        int riceBits;   // Rice parameter of a compressed snapshot
+        long m;
+        int k;
+        HashStrategy hashStrategy;
+        int seed;
+        long elementCount;
+
+        /**
+         * Getter for number of words in the bit array.
+         * @return number of words
+         */
+        long wordCount() {
+            return (this.m + 63) >>> 6;
+        }
+
+        /**
+         * Checks if the snapshot holds Rice-coded set bits instead of raw words.
+         * @return true if the snapshot is compressed, false otherwise
+         */
+        boolean isCompressed() {
+            return this.version == COMPRESSED_VERSION;
+        }
+    }
+
+    /**
+     * Supplies the words of a bit array being written.
+     */
+    interface WordSource {
+        long word(long index);
+
+        /**
+         * Puts consecutive words into a buffer until it is full, one word at a time unless overridden.
+         * @param from index of the first word
+         * @param into buffer to fill
+         */
+        default void words(long from, LongBuffer into) {
+            for (long i = from; into.hasRemaining(); i++) {
+                into.put(word(i));
+            }
+        }
+    }
+
+    /**
+     * Receives the words of a bit array being read.
+     */
+    interface WordSink {
+        void word(long index, long word);
+
+        /**
+         * Takes consecutive words from a buffer until it is empty, one word at a time unless overridden.
+         * @param from index of the first word
+         * @param words buffer to drain
+         */
+        default void words(long from, LongBuffer words) {
+            for (long i = from; words.hasRemaining(); i++) {
+                word(i, words.get());
+            }
+        }
+    }
+
+    /**
+     * Receives the gaps between set bits of a bit array being compressed.
+     */
+    private interface GapSink {
+        void gap(long gap) throws IOException;
+    }
+
+    private Snapshots() {
+    }
+
+    /**
+     * Writes a snapshot to a channel.
+     * @param channel channel to write to
+     * @param header snapshot parameters
+     * @param source words of the bit array
+     */
+    static void write(WritableByteChannel channel, Header header, WordSource source) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        // write header
+        putHeader(buffer, header, VERSION, 0);
+        flush(channel, buffer, crc);
+
+        // write words a buffer at a time through a long view of the buffer
+        long wordCount = header.wordCount();
+        for (long i = 0; i < wordCount; ) {
+            int count = (int) Math.min(BUFFER_BYTES / 8, wordCount - i);
+            LongBuffer view = buffer.asLongBuffer();
+            view.limit(count);
+            source.words(i, view);
+            buffer.position(count * 8);
+            flush(channel, buffer, crc);
+            i += count;
+        }
+
+        // write checksum trailer
+        buffer.putLong(crc.getValue());
+        buffer.flip();
+        writeFully(channel, buffer);
+    }
+
+    /**
+     * Writes a compressed snapshot to a channel, picking the Rice parameter with the smallest payload. Falls back to
+     * a raw snapshot if compression would not save space, as for a filter filled close to its capacity.
+     * @param channel channel to write to
+     * @param header snapshot parameters
+     * @param source words of the bit array
+     */
+    static void writeCompressed(WritableByteChannel channel, Header header, WordSource source) throws IOException {
+        // count set bits to estimate the mean gap, then cost the nearest Rice parameters exactly
+        long wordCount = header.wordCount();
+        long setBits = 0;
+        for (long i = 0; i < wordCount; i++) {
+            setBits += Long.bitCount(source.word(i));
+        }
+        double scaledGap = setBits == 0 ? 1 : Math.log(2) * (header.m - setBits) / setBits;
+        int guess = scaledGap < 2 ? 0 : 63 - Long.numberOfLeadingZeros((long) scaledGap);
+        int lowest = Math.max(0, Math.min(MAX_RICE_BITS, guess) - 1);
+        long[] costs = new long[3];
+        forEachGap(source, wordCount, gap -> {
+            for (int j = 0; j < costs.length; j++) {
+                costs[j] += (gap >>> (lowest + j)) + 1 + lowest + j;
+            }
+        });
+        int best = 0;
+        for (int j = 1; j < costs.length; j++) {
+            if (lowest + j <= MAX_RICE_BITS && costs[j] < costs[best]) {
+                best = j;
+            }
+        }
+        int riceBits = lowest + best;
+        long payloadBytes = (costs[best] + 7) >>> 3;
+        if (16 + payloadBytes >= wordCount * 8) {
+            write(channel, header, source);
+            return;
+        }
+
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        putHeader(buffer, header, COMPRESSED_VERSION, riceBits);
+        buffer.putLong(setBits).putLong(payloadBytes);
+
+        // write gaps, then pad the last byte with zeros
+        BitWriter writer = new BitWriter(channel, buffer, crc);
+        long lowMask = (1L << riceBits) - 1;
+        forEachGap(source, wordCount, gap -> {
+            writer.writeUnary(gap >>> riceBits);
+            writer.write(gap & lowMask, riceBits);
+        });
+        writer.finish();
+        flush(channel, buffer, crc);
+
+        // write checksum trailer
+        buffer.putLong(crc.getValue());
+        buffer.flip();
+        writeFully(channel, buffer);
+    }
+
+    /**
+     * Puts a snapshot header into a buffer.
+     * @param buffer buffer to write into
+     * @param header snapshot parameters
+     * @param version snapshot version
+     * @param reserved value of the reserved field
+     */
+    private static void putHeader(ByteBuffer buffer, Header header, int version, int reserved) {
+        buffer.putInt(MAGIC).putInt(version).putLong(header.m).putInt(header.k)
+                .putInt(header.hashStrategy == HashStrategy.DOUBLE_MURMUR3_128 ? DOUBLE_MURMUR3_128 : SEEDED_MURMUR3_32)
+                .putInt(header.seed).putInt(reserved).putLong(header.elementCount);
+    }
+
+    /**
+     * Passes the number of clear bits before each set bit of a bit array to a consumer.
+     * @param source words of the bit array
+     * @param wordCount number of words
+     * @param sink receiver of the gaps
+     */
+    private static void forEachGap(WordSource source, long wordCount, GapSink sink) throws IOException {
+        long previous = -1;
+        for (long i = 0; i < wordCount; i++) {
+            long word = source.word(i);
+            while (word != 0) {
+                long index = (i << 6) + Long.numberOfTrailingZeros(word);
+                sink.gap(index - previous - 1);
+                previous = index;
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * Reads and validates a snapshot header.
+     * @param channel channel to read from
+     * @param crc checksum to update with the header bytes
+     * @return snapshot parameters
+     */
+    static Header readHeader(ReadableByteChannel channel, CRC32C crc) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, buffer);
+        crc.update(buffer.array(), 0, HEADER_BYTES);
+
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a filter snapshot.");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION && version != COMPRESSED_VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + ".");
+        }
+
+        Header header = new Header();
+        header.version = version;
+        header.m = buffer.getLong();
+        header.k = buffer.getInt();
+        int strategy = buffer.getInt();
+        header.seed = buffer.getInt();
+        header.riceBits = buffer.getInt();  // reserved in raw snapshots
+        header.elementCount = buffer.getLong();
+
+        if (strategy == SEEDED_MURMUR3_32) {
+            header.hashStrategy = HashStrategy.SEEDED_MURMUR3_32;
+        } else if (strategy == DOUBLE_MURMUR3_128) {
+            header.hashStrategy = HashStrategy.DOUBLE_MURMUR3_128;
+        } else {
+            throw new IOException("Unknown hash strategy " + strategy + ".");
+        }
+        if (header.m <= 0 || header.k <= 0 || header.k > MAX_HASHES || header.riceBits < 0
+                || header.riceBits > MAX_RICE_BITS || (header.version == VERSION && header.riceBits != 0)) {
+            throw new IOException("Corrupt snapshot header.");
+        }
+
+        // reject a header claiming more words than a file holds before the filter is allocated from it
+        if (channel instanceof SeekableByteChannel) {
+            SeekableByteChannel seekable = (SeekableByteChannel) channel;
+            long remaining = seekable.size() - seekable.position();
+            long needed = header.isCompressed() ? 16 + 8 : header.wordCount() * 8 + 8;
+            if (remaining < needed) {
+                throw new IOException("Snapshot is truncated.");
+            }
+        }
+
+        return header;
+    }
+
+    /**
+     * Reads the words of a snapshot and verifies its checksum.
+     * @param channel channel to read from, positioned after the header
+     * @param header snapshot parameters
+     * @param sink receiver of the words
+     * @param crc checksum updated with the header bytes
+     */
+    static void readWords(ReadableByteChannel channel, Header header, WordSink sink, CRC32C crc)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        long wordCount = header.wordCount();
+        long i = 0;
+        while (i < wordCount) {
+            // fill the buffer with as many whole words as remain
+            buffer.clear();
+            buffer.limit((int) Math.min(BUFFER_BYTES, (wordCount - i) * 8));
+            readFully(channel, buffer);
+            crc.update(buffer.array(), 0, buffer.limit());
+            sink.words(i, buffer.asLongBuffer());
+            i += buffer.limit() / 8;
+        }
+
+        // verify checksum trailer
+        buffer.clear();
+        buffer.limit(8);
+        readFully(channel, buffer);
+        if (buffer.getLong() != crc.getValue()) {
+            throw new IOException("Snapshot checksum mismatch.");
+        }
+    }
+
+    /**
+     * Reads the set bits of a compressed snapshot and verifies its checksum. Bits are passed to the sink as they are
+     * decoded, in increasing order, so no copy of the bit array is built. The sink therefore sees every bit before the
+     * checksum is verified, which is only safe because callers discard the filter when this method throws.
+     * @param channel channel to read from, positioned after the header
+     * @param header snapshot parameters
+     * @param sink receiver of the set bit indexes
+     * @param crc checksum updated with the header bytes
+     */
+    static void readBits(ReadableByteChannel channel, Header header, LongConsumer sink, CRC32C crc)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.limit(16);
+        readFully(channel, buffer);
+        crc.update(buffer.array(), 0, 16);
+        long setBits = buffer.getLong();
+        long payloadBytes = buffer.getLong();
+        if (setBits < 0 || setBits > header.m || payloadBytes < 0) {
+            throw new IOException("Corrupt snapshot payload.");
+        }
+
+        // decode gaps, rejecting indexes past the end of the bit array or wrapped past Long.MAX_VALUE
+        BitReader reader = new BitReader(channel, buffer, crc, payloadBytes);
+        buffer.limit(0);
+        long previous = -1;
+        for (long i = 0; i < setBits; i++) {
+            long gap = (reader.readUnary() << header.riceBits) | reader.read(header.riceBits);
+            long index = previous + 1 + gap;
+            if (gap < 0 || index < 0 || index >= header.m) {
+                throw new IOException("Corrupt snapshot payload.");
+            }
+            sink.accept(index);
+            previous = index;
+        }
+        reader.skipRemaining();
+
+        // verify checksum trailer
+        buffer.clear();
+        buffer.limit(8);
+        readFully(channel, buffer);
+        if (buffer.getLong() != crc.getValue()) {
+            throw new IOException("Snapshot checksum mismatch.");
+        }
+    }
+
+    /**
+     * Packs bits least significant bit first into a buffer, flushing it to a channel when full.
+     */
+    private static final class BitWriter {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer;
+        private final CRC32C crc;
+        private long bits;
+        private int bitCount;
+
+        BitWriter(WritableByteChannel channel, ByteBuffer buffer, CRC32C crc) {
+            this.channel = channel;
+            this.buffer = buffer;
+            this.crc = crc;
+        }
+
+        /**
+         * Writes the low bits of a value.
+         * @param value value to write
+         * @param count number of bits, at most 56
+         */
+        void write(long value, int count) throws IOException {
+            this.bits |= value << this.bitCount;
+            this.bitCount += count;
+            while (this.bitCount >= 8) {
+                if (!this.buffer.hasRemaining()) {
+                    flush(this.channel, this.buffer, this.crc);
+                }
+                this.buffer.put((byte) this.bits);
+                this.bits >>>= 8;
+                this.bitCount -= 8;
+            }
+        }
+
+        /**
+         * Writes a value in unary as that many one bits followed by a zero bit.
+         * @param value value to write
+         */
+        void writeUnary(long value) throws IOException {
+            for (; value >= 32; value -= 32) {
+                write(0xffffffffL, 32);
+            }
+            write((1L << value) - 1, (int) value + 1);
+        }
+
+        /**
+         * Writes the last partial byte.
+         */
+        void finish() throws IOException {
+            write(0, 7);
+        }
+    }
+
+    /**
+     * Unpacks bits least significant bit first from a payload of known length.
+     */
+    private static final class BitReader {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer;
+        private final CRC32C crc;
+        private long unread;    // payload bytes not yet read from the channel
+        private long bits;
+        private int bitCount;
+
+        BitReader(ReadableByteChannel channel, ByteBuffer buffer, CRC32C crc, long payloadBytes) {
+            this.channel = channel;
+            this.buffer = buffer;
+            this.crc = crc;
+            this.unread = payloadBytes;
+        }
+
+        /**
+         * Reads a number of bits.
+         * @param count number of bits, at most 56
+         * @return bits read
+         */
+        long read(int count) throws IOException {
+            while (this.bitCount < count) {
+                this.bits |= (long) nextByte() << this.bitCount;
+                this.bitCount += 8;
+            }
+            long value = this.bits & ((1L << count) - 1);
+            this.bits >>>= count;
+            this.bitCount -= count;
+            return value;
+        }
+
+        /**
+         * Reads a unary value as the number of one bits before the next zero bit.
+         * @return value read
+         */
+        long readUnary() throws IOException {
+            long value = 0;
+            while (true) {
+                if (this.bitCount == 0) {
+                    this.bits = nextByte();
+                    this.bitCount = 8;
+                }
+                int ones = Long.numberOfTrailingZeros(~this.bits);
+                if (ones < this.bitCount) {
+                    this.bits >>>= ones + 1;
+                    this.bitCount -= ones + 1;
+                    return value + ones;
+                }
+                value += this.bitCount;
+                this.bits = 0;
+                this.bitCount = 0;
+            }
+        }
+
+        /**
+         * Reads any payload bytes left after the last value, so that they are included in the checksum.
+         */
+        void skipRemaining() throws IOException {
+            while (this.unread > 0) {
+                this.buffer.position(this.buffer.limit());
+                nextByte();
+            }
+        }
+
+        /**
+         * Reads the next payload byte, refilling the buffer from the channel when empty.
+         * @return byte as an unsigned value
+         */
+        private int nextByte() throws IOException {
+            if (!this.buffer.hasRemaining()) {
+                if (this.unread == 0) {
+                    throw new IOException("Corrupt snapshot payload.");
+                }
+                this.buffer.clear();
+                this.buffer.limit((int) Math.min(BUFFER_BYTES, this.unread));
+                readFully(this.channel, this.buffer);
+                this.crc.update(this.buffer.array(), 0, this.buffer.limit());
+                this.unread -= this.buffer.limit();
+            }
+
+            return this.buffer.get() & 0xff;
+        }
+    }
+
+    /**
+     * Writes the buffered bytes to a channel and clears the buffer.
+     * @param channel channel to write to
+     * @param buffer buffer holding bytes to write
+     * @param crc checksum to update with the written bytes
+     */
+    private static void flush(WritableByteChannel channel, ByteBuffer buffer, CRC32C crc) throws IOException {
+        buffer.flip();
+        crc.update(buffer.array(), 0, buffer.limit());
+        writeFully(channel, buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Writes all remaining bytes of a buffer to a channel.
+     * @param channel channel to write to
+     * @param buffer buffer to write
+     */
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Fills the remaining bytes of a buffer from a channel and flips it for reading.
+     * @param channel channel to read from
+     * @param buffer buffer to fill
+     */
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Snapshot ended unexpectedly.");
+            }
+        }
+        buffer.flip();
+    }
+}
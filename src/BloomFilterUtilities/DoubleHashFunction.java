@@ -0,0 +1,119 @@
+package BloomFilterUtilities;
+
+import org.apache.commons.codec.digest.MurmurHash3;
+
+/**
+ * A hash function class that derives k indexes from a single 128-bit hash using Kirsch-Mitzenmacher double hashing.
+ */
+public class DoubleHashFunction {
+    private long M;
+    private int k;
+    private int seed;
+
+    /**
+     * Constructor that initializes double hash function with the default seed.
+     * @param M max value of hashcode
+     * @param k number of indexes to derive per element
+     */
+    public DoubleHashFunction(long M, int k) throws IllegalArgumentException {
+        this(M, k, 0);
+    }
+
+    /**
+     * Constructor that initializes double hash function with a seed.
+     * @param M max value of hashcode
+     * @param k number of indexes to derive per element
+     * @param seed hash function seed
+     */
+    public DoubleHashFunction(long M, int k, int seed) throws IllegalArgumentException {
+        if (M <= 0) {
+            throw new IllegalArgumentException("M must be positive.");
+        }
+
+        if (k <= 0) {
+            throw new IllegalArgumentException("K must be positive.");
+        }
+
+        this.M = M;
+        this.k = k;
+        this.seed = seed;
+    }
+
+    /**
+     * Computes the 128-bit MurmurHash3 of data that all k indexes are derived from.
+     * @param data data to be hashed
+     * @param offset offset of the first byte to hash
+     * @param length number of bytes to hash
+     * @return the two 64-bit halves h1 and h2
+     */
+    public long[] hash128(byte[] data, int offset, int length) {
+        return MurmurHash3.hash128x64(data, offset, length, this.seed);
+    }
+
+    /**
+     * Derives the i-th index from the two halves of a 128-bit hash, for M that fits in an int. Filters with a larger M
+     * must use longIndex.
+     * @param h1 first half of the 128-bit hash
+     * @param h2 second half of the 128-bit hash
+     * @param i index number, between 0 and k - 1
+     * @return hashcode
+     */
+    public int index(long h1, long h2, int i) throws IllegalStateException {
+        if (this.M > Integer.MAX_VALUE) {
+            throw new IllegalStateException("M does not fit in an int index, use longIndex.");
+        }
+
+        return (int) longIndex(h1, h2, i);
+    }
+
+    /**
+     * Derives the i-th 64-bit index from the two halves of a 128-bit hash.
+     * @param h1 first half of the 128-bit hash
+     * @param h2 second half of the 128-bit hash
+     * @param i index number, between 0 and k - 1
+     * @return hashcode
+     */
+    public long longIndex(long h1, long h2, int i) {
+        long combined = h1 + i * h2;
+        return (combined & Long.MAX_VALUE) % this.M;    // handle negative values and shrink range to M
+    }
+
+    /**
+     * Function used to hash data into all k indexes, for M that fits in an int.
+     * @param data data to be hashed
+     * @return array of k hashcodes
+     */
+    public int[] hash(byte[] data) throws IllegalStateException {
+        long[] h = hash128(data, 0, data.length);
+        int[] indexes = new int[this.k];
+        for (int i = 0; i < this.k; i++) {
+            indexes[i] = index(h[0], h[1], i);
+        }
+
+        return indexes;
+    }
+
+    /**
+     * Getter for max value of hashcode.
+     * @return max value of hashcode
+     */
+    public long getM() {
+        return this.M;
+    }
+
+    /**
+     * Getter for number of indexes derived per element.
+     * @return number of indexes
+     */
+    public int getK() {
+        return this.k;
+    }
+
+    /**
+     * Getter for seed.
+     * @return seed
+     */
+    public int getSeed() {
+        return this.seed;
+    }
+}
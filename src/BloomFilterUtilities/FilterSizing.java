@@ -0,0 +1,124 @@
+package BloomFilterUtilities;
+
+/**
+ * Standard Bloom filter sizing formulas shared by the filter implementations.
+ */
+public final class FilterSizing {
+    private static final double BLOCKED_GROWTH_STEP = 1.02;
+
+    private FilterSizing() {
+    }
+
+    /**
+     * Computes the optimal number of bits for n elements at a target false positive rate, before rounding.
+     * @param n expected number of elements
+     * @param fpr target false positive rate
+     * @return optimal number of bits
+     */
+    public static double optimalBits(long n, double fpr) {
+        return (-n * Math.log(fpr)) / Math.pow(Math.log(2), 2);
+    }
+
+    /**
+     * Computes the optimal number of hash functions for m bits and n elements, rounded and at least 1.
+     * @param m number of bits
+     * @param n expected number of elements
+     * @return optimal number of hash functions
+     */
+    public static int optimalHashes(double m, long n) {
+        return Math.max(1, (int) Math.round((m / n) * Math.log(2)));
+    }
+
+    /**
+     * Validates the expected number of elements and target false positive rate of a filter.
+     * @param n expected number of elements
+     * @param fpr target false positive rate
+     */
+    public static void validate(long n, double fpr) throws IllegalArgumentException {
+        if (n <= 0) {
+            throw new IllegalArgumentException("N must be positive.");
+        }
+
+        if (fpr < 0 || fpr > 1) {
+            throw new IllegalArgumentException("Fpr must be between 0 and 1.");
+        }
+    }
+
+    /**
+     * Computes the expected false positive rate of a blocked filter. The number of elements in a block is Poisson
+     * distributed with mean n / blocks, and a block holding i elements behaves like a standard filter of blockBits
+     * bits.
+     * @param n number of elements stored
+     * @param blocks number of blocks
+     * @param blockBits number of bits per block
+     * @param k number of bits set per element
+     * @return expected false positive rate
+     */
+    public static double blockedFpr(long n, long blocks, int blockBits, int k) {
+        double lambda = (double) n / blocks;
+        double logLambda = Math.log(lambda);
+        int limit = (int) Math.ceil(lambda + 12 * Math.sqrt(lambda) + 20);
+
+        // sum over i of Poisson(i; lambda) * fpr of a single block holding i elements
+        double fpr = 0;
+        double logPoisson = -lambda;
+        for (int i = 0; i <= limit; i++) {
+            if (i > 0) {
+                logPoisson += logLambda - Math.log(i);
+            }
+            double blockFpr = Math.pow(1 - Math.pow(1 - 1.0 / blockBits, (double) i * k), k);
+            fpr += Math.exp(logPoisson) * blockFpr;
+        }
+
+        return fpr;
+    }
+
+    /**
+     * Finds the number of bits per element that minimizes the expected blocked false positive rate. This is at most
+     * the standard optimum, since extra bits crowd the blocks that already hold more elements than average.
+     * @param n number of elements stored
+     * @param blocks number of blocks
+     * @param blockBits number of bits per block
+     * @return optimal number of bits set per element
+     */
+    public static int optimalBlockedHashes(long n, long blocks, int blockBits) {
+        int best = 1;
+        double bestFpr = blockedFpr(n, blocks, blockBits, best);
+        int limit = optimalHashes((double) blocks * blockBits, n);
+        for (int k = 2; k <= limit; k++) {
+            double fpr = blockedFpr(n, blocks, blockBits, k);
+            if (fpr >= bestFpr) {
+                break;
+            }
+            best = k;
+            bestFpr = fpr;
+        }
+
+        return best;
+    }
+
+    /**
+     * Computes the number of blocks a blocked filter needs for n elements at a target false positive rate. Blocking
+     * raises the false positive rate because elements are spread unevenly over blocks, so the number of bits is grown
+     * from the standard optimum until the blocked false positive rate meets the target. Narrow blocks need many times
+     * the standard number of bits for very low targets.
+     * @param n expected number of elements
+     * @param fpr target false positive rate
+     * @param blockBits number of bits per block
+     * @return number of blocks, at least 1
+     */
+    public static long optimalBlocks(long n, double fpr, int blockBits) throws IllegalArgumentException {
+        double bits = Math.max(1, optimalBits(n, fpr));
+        while (true) {
+            if (bits / blockBits >= Long.MAX_VALUE) {
+                throw new IllegalArgumentException("Fpr cannot be reached with blocks of " + blockBits + " bits.");
+            }
+
+            long blocks = Math.max(1, (long) Math.ceil(bits / blockBits));
+            if (blockedFpr(n, blocks, blockBits, optimalBlockedHashes(n, blocks, blockBits)) <= fpr) {
+                return blocks;
+            }
+            bits *= BLOCKED_GROWTH_STEP;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package BloomFilterUtilities;
+
+/**
+ * An encoder that writes the canonical bytes of an element into a FunnelBuffer, replacing Java serialization on the
+ * BloomFilter hot path.
+ * @param <T> type of element encoded by the funnel
+ */
+public interface Funnel<T> {
+    /**
+     * Writes the canonical bytes of an element into a buffer.
+     * @param from element to encode
+     * @param into buffer to write into
+     */
+    void funnel(T from, FunnelBuffer into);
+}
@@ -0,0 +1,196 @@
+package BloomFilterUtilities;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A growable byte buffer that funnels write elements into. One buffer is kept per thread and reused across calls, so
+ * encoding an element does not allocate once the buffer has grown to fit it.
+ */
+public final class FunnelBuffer {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final ThreadLocal<FunnelBuffer> LOCAL = ThreadLocal.withInitial(FunnelBuffer::new);
+
+    private byte[] bytes;
+    private int length;
+
+    /**
+     * Constructor that initializes an empty buffer.
+     */
+    public FunnelBuffer() {
+        this.bytes = new byte[INITIAL_CAPACITY];
+        this.length = 0;
+    }
+
+    /**
+     * Returns the calling thread's buffer, emptied and ready to be written into.
+     * @return thread-local buffer
+     */
+    public static FunnelBuffer local() {
+        FunnelBuffer buffer = LOCAL.get();
+        buffer.reset();
+        return buffer;
+    }
+
+    /**
+     * Encodes an element with a funnel into the calling thread's buffer.
+     * @param element element to encode
+     * @param funnel funnel used to encode element
+     * @param <T> type of element
+     * @return thread-local buffer holding the encoded element
+     */
+    public static <T> FunnelBuffer encode(T element, Funnel<? super T> funnel) throws IllegalArgumentException {
+        if (funnel == null) {
+            throw new IllegalArgumentException("Invalid null argument for funnel.");
+        }
+
+        FunnelBuffer buffer = local();
+        funnel.funnel(element, buffer);
+        return buffer;
+    }
+
+    /**
+     * Empties the buffer without releasing its storage.
+     */
+    public void reset() {
+        this.length = 0;
+    }
+
+    /**
+     * Writes a single byte.
+     * @param b byte to write
+     * @return this buffer
+     */
+    public FunnelBuffer putByte(byte b) {
+        ensureCapacity(1);
+        this.bytes[this.length++] = b;
+        return this;
+    }
+
+    /**
+     * Writes a range of a byte array.
+     * @param src source byte array
+     * @param offset offset of the first byte to write
+     * @param len number of bytes to write
+     * @return this buffer
+     */
+    public FunnelBuffer putBytes(byte[] src, int offset, int len) {
+        ensureCapacity(len);
+        System.arraycopy(src, offset, this.bytes, this.length, len);
+        this.length += len;
+        return this;
+    }
+
+    /**
+     * Writes the remaining bytes of a ByteBuffer without changing its position.
+     * @param src source buffer
+     * @return this buffer
+     */
+    public FunnelBuffer putBytes(ByteBuffer src) {
+        int len = src.remaining();
+        ensureCapacity(len);
+        src.get(src.position(), this.bytes, this.length, len);
+        this.length += len;
+        return this;
+    }
+
+    /**
+     * Writes an int in little-endian order.
+     * @param v int to write
+     * @return this buffer
+     */
+    public FunnelBuffer putInt(int v) {
+        ensureCapacity(4);
+        this.bytes[this.length] = (byte) v;
+        this.bytes[this.length + 1] = (byte) (v >>> 8);
+        this.bytes[this.length + 2] = (byte) (v >>> 16);
+        this.bytes[this.length + 3] = (byte) (v >>> 24);
+        this.length += 4;
+        return this;
+    }
+
+    /**
+     * Writes a long in little-endian order.
+     * @param v long to write
+     * @return this buffer
+     */
+    public FunnelBuffer putLong(long v) {
+        putInt((int) v);
+        putInt((int) (v >>> 32));
+        return this;
+    }
+
+    /**
+     * Writes a character sequence encoded as UTF-8. Unpaired surrogates are written as '?', matching
+     * String.getBytes(StandardCharsets.UTF_8).
+     * @param cs character sequence to write
+     * @return this buffer
+     */
+    public FunnelBuffer putUtf8(CharSequence cs) {
+        int len = cs.length();
+        ensureCapacity(len * 3);    // worst case for a single char; surrogate pairs use 4 bytes for 2 chars
+
+        byte[] b = this.bytes;
+        int pos = this.length;
+        for (int i = 0; i < len; i++) {
+            char c = cs.charAt(i);
+            if (c < 0x80) {
+                b[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                b[pos++] = (byte) (0xc0 | (c >>> 6));
+                b[pos++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(cs.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, cs.charAt(++i));
+                    b[pos++] = (byte) (0xf0 | (cp >>> 18));
+                    b[pos++] = (byte) (0x80 | ((cp >>> 12) & 0x3f));
+                    b[pos++] = (byte) (0x80 | ((cp >>> 6) & 0x3f));
+                    b[pos++] = (byte) (0x80 | (cp & 0x3f));
+                } else {
+                    b[pos++] = (byte) '?';
+                }
+            } else {
+                b[pos++] = (byte) (0xe0 | (c >>> 12));
+                b[pos++] = (byte) (0x80 | ((c >>> 6) & 0x3f));
+                b[pos++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        this.length = pos;
+        return this;
+    }
+
+    /**
+     * Getter for the backing array. Only the first length() bytes are valid.
+     * @return backing array
+     */
+    public byte[] array() {
+        return this.bytes;
+    }
+
+    /**
+     * Getter for number of bytes written.
+     * @return number of bytes written
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * Copies the written bytes into a new array.
+     * @return copy of the written bytes
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(this.bytes, this.length);
+    }
+
+    /**
+     * Grows the backing array so that at least n more bytes fit.
+     * @param n number of bytes about to be written
+     */
+    private void ensureCapacity(int n) {
+        int required = this.length + n;
+        if (required > this.bytes.length) {
+            this.bytes = Arrays.copyOf(this.bytes, Math.max(required, this.bytes.length * 2));
+        }
+    }
+}
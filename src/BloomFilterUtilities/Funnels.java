@@ -0,0 +1,50 @@
+package BloomFilterUtilities;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Canonical funnels for common element types. Strings and other character sequences share the same UTF-8 encoding,
+ * so an element hashes identically whichever of the two it is added or queried as.
+ */
+public final class Funnels {
+    /**
+     * Funnel that writes a String as UTF-8.
+     */
+    public static final Funnel<String> STRING = (s, into) -> into.putUtf8(s);
+
+    /**
+     * Funnel that writes a CharSequence as UTF-8.
+     */
+    public static final Funnel<CharSequence> CHAR_SEQUENCE = (cs, into) -> into.putUtf8(cs);
+
+    /**
+     * Funnel that writes a byte array as is.
+     */
+    public static final Funnel<byte[]> BYTE_ARRAY = (b, into) -> into.putBytes(b, 0, b.length);
+
+    /**
+     * Funnel that writes the remaining bytes of a ByteBuffer as is. A line of UTF-8 text as a ByteBuffer hashes the
+     * same as the line as a String.
+     */
+    public static final Funnel<ByteBuffer> BYTE_BUFFER = (b, into) -> into.putBytes(b);
+
+    /**
+     * Funnel that writes an Integer as 4 little-endian bytes.
+     */
+    public static final Funnel<Integer> INTEGER = (i, into) -> into.putInt(i);
+
+    /**
+     * Funnel that writes a Long as 8 little-endian bytes.
+     */
+    public static final Funnel<Long> LONG = (l, into) -> into.putLong(l);
+
+    /**
+     * Funnel that writes a UUID as its most and then least significant bits.
+     */
+    public static final Funnel<UUID> UUID = (u, into) -> into.putLong(u.getMostSignificantBits())
+            .putLong(u.getLeastSignificantBits());
+
+    private Funnels() {
+    }
+}
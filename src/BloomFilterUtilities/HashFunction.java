@@ -29,9 +29,28 @@ public class HashFunction {
      * @return hashcode
      */
     public int hash(byte[] data) {
-        int hash = MurmurHash3.hash32x86(data, 0, data.length, this.seed);
+        return hash(data, 0, data.length);
+    }
+
+    /**
+     * Function used to hash a range of data based on MurmurHash3.
+     * @param data data to be hashed
+     * @param offset offset of the first byte to hash
+     * @param length number of bytes to hash
+     * @return hashcode
+     */
+    public int hash(byte[] data, int offset, int length) {
+        int hash = MurmurHash3.hash32x86(data, offset, length, this.seed);
         hash = (hash & 0x7fffffff) % this.M;    // handle negative values and shrink range to M
 
         return hash;
     }
+
+    /**
+     * Getter for seed.
+     * @return seed
+     */
+    public int getSeed() {
+        return this.seed;
+    }
 }
@@ -0,0 +1,18 @@
+package BloomFilterUtilities;
+
+/**
+ * Strategies used by a BloomFilter to map an element to its k bit indexes.
+ */
+public enum HashStrategy {
+    /**
+     * One MurmurHash3 32-bit hash per index, each with its own seed. This is the original strategy and is kept
+     * so that filters built before double hashing was introduced still answer queries correctly.
+     */
+    SEEDED_MURMUR3_32,
+
+    /**
+     * A single MurmurHash3 128-bit hash per element, with all k indexes derived by Kirsch-Mitzenmacher double
+     * hashing (h1 + i * h2).
+     */
+    DOUBLE_MURMUR3_128
+}
@@ -0,0 +1,100 @@
+package BloomFilterUtilities;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size log-linear histogram of latencies in nanoseconds. Values below 16 get exact buckets, and every larger
+ * power of two is split into 16 linear buckets, so a reported percentile is within 6.25% of the recorded value.
+ * Recording is a single atomic increment and never allocates.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Records a latency.
+     * @param nanos latency in nanoseconds, where negative values count as 0
+     */
+    public void record(long nanos) {
+        this.counts.incrementAndGet(bucket(Math.max(0, nanos)));
+    }
+
+    /**
+     * Getter for number of recorded latencies.
+     * @return number of recorded latencies
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += this.counts.get(i);
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the latency at or below which a percentage of the recorded latencies fall.
+     * @param percentile percentage between 0 and 100
+     * @return upper bound of the bucket holding the percentile in nanoseconds, or 0 if nothing is recorded
+     */
+    public long getValueAtPercentile(double percentile) throws IllegalArgumentException {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+        }
+
+        // read a snapshot of the counts so that concurrent records cannot move the target
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = this.counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return upperBound(i);
+            }
+        }
+
+        return upperBound(BUCKETS - 1);
+    }
+
+    /**
+     * Finds the bucket of a value.
+     * @param value non-negative value
+     * @return bucket index
+     */
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        // group by the highest set bit, then by the next SUB_BUCKET_BITS bits
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Derives the largest value of a bucket.
+     * @param bucket bucket index
+     * @return largest value mapped to the bucket
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,125 @@
+package BloomFilterUtilities;
+
+/**
+ * A bit array addressed by long indexes. Bits are stored in segments of long words so that the array can grow past
+ * the 2^31 bit limit of java.util.BitSet and the 2^31 element limit of a single Java array.
+ */
+public class LongBitArray {
+    private static final int DEFAULT_SEGMENT_SHIFT = 24;   // 2^24 words (128 MB) per segment
+
+    private long bitSize;
+    private int segmentShift;
+    private long segmentMask;
+    private long[][] segments;
+
+    /**
+     * Constructor that initializes a cleared bit array with the default segment size.
+     * @param bitSize number of bits
+     */
+    public LongBitArray(long bitSize) throws IllegalArgumentException {
+        this(bitSize, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    /**
+     * Constructor that initializes a cleared bit array with 2^segmentShift words per segment.
+     * @param bitSize number of bits
+     * @param segmentShift log2 of the number of words per segment
+     */
+    public LongBitArray(long bitSize, int segmentShift) throws IllegalArgumentException {
+        if (bitSize <= 0) {
+            throw new IllegalArgumentException("BitSize must be positive.");
+        }
+
+        if (segmentShift < 0 || segmentShift > 30) {
+            throw new IllegalArgumentException("SegmentShift must be between 0 and 30.");
+        }
+
+        this.bitSize = bitSize;
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1L << segmentShift) - 1;
+
+        // allocate full segments followed by a smaller last segment
+        long wordCount = (bitSize + 63) >>> 6;
+        int segmentCount = (int) ((wordCount + this.segmentMask) >>> segmentShift);
+        this.segments = new long[segmentCount][];
+        for (int i = 0; i < segmentCount; i++) {
+            long remaining = wordCount - ((long) i << segmentShift);
+            this.segments[i] = new long[(int) Math.min(remaining, 1L << segmentShift)];
+        }
+    }
+
+    /**
+     * Sets a bit.
+     * @param index index of bit to set
+     * @return true if the bit changed from 0 to 1, false if it was already set
+     */
+    public boolean set(long index) {
+        long wordIndex = index >>> 6;
+        long[] segment = this.segments[(int) (wordIndex >>> this.segmentShift)];
+        int offset = (int) (wordIndex & this.segmentMask);
+        long word = segment[offset];
+        long updated = word | (1L << index);
+        segment[offset] = updated;
+        return updated != word;
+    }
+
+    /**
+     * Reads a bit.
+     * @param index index of bit to read
+     * @return true if the bit is set, false otherwise
+     */
+    public boolean get(long index) {
+        long wordIndex = index >>> 6;
+        return (this.segments[(int) (wordIndex >>> this.segmentShift)][(int) (wordIndex & this.segmentMask)]
+                & (1L << index)) != 0;
+    }
+
+    /**
+     * Reads a word of 64 bits.
+     * @param wordIndex index of word, equal to bit index / 64
+     * @return word
+     */
+    public long getWord(long wordIndex) {
+        return this.segments[(int) (wordIndex >>> this.segmentShift)][(int) (wordIndex & this.segmentMask)];
+    }
+
+    /**
+     * Overwrites a word of 64 bits.
+     * @param wordIndex index of word, equal to bit index / 64
+     * @param word new word
+     */
+    public void setWord(long wordIndex, long word) {
+        this.segments[(int) (wordIndex >>> this.segmentShift)][(int) (wordIndex & this.segmentMask)] = word;
+    }
+
+    /**
+     * Counts the set bits.
+     * @return number of set bits
+     */
+    public long cardinality() {
+        long count = 0;
+        for (long[] segment : this.segments) {
+            for (long word : segment) {
+                count += Long.bitCount(word);
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Getter for number of bits.
+     * @return number of bits
+     */
+    public long bitSize() {
+        return this.bitSize;
+    }
+
+    /**
+     * Getter for number of words.
+     * @return number of words
+     */
+    public long wordCount() {
+        return (this.bitSize + 63) >>> 6;
+    }
+}
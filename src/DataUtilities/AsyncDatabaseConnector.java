@@ -0,0 +1,268 @@
+package DataUtilities;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An asynchronous interface to a DatabaseConnector. Every call runs as its own task, on a virtual thread when the
+ * runtime supports them, and returns a CompletableFuture. A semaphore bounds the number of calls running at once,
+ * by default to the connector's pool size. Without virtual threads, calls run on a fixed pool of that many platform
+ * threads, so queued calls wait in the pool's queue instead of holding a thread. Sentinel failures complete the future
+ * exceptionally with an SQLException, calls that exceed the timeout complete with a TimeoutException, and a cancelled
+ * or timed out call interrupts its task. The timeout counts from submission, so time spent queued for a permit is
+ * included. A statement already sent to the database runs until the driver returns.
+ */
+public class AsyncDatabaseConnector implements AutoCloseable {
+    private static final long DEFAULT_TIMEOUT_MILLIS = 30000;
+
+    private static Logger logger = Logger.getLogger(AsyncDatabaseConnector.class.getName());
+
+    private DatabaseConnector dbConn;
+    private ExecutorService executor;
+    private Semaphore permits;
+    private long timeoutMillis;
+
+    /**
+     * Constructor that initializes AsyncDatabaseConnector with concurrency bounded by the connector's pool size.
+     * @param dbConn connector to run calls on
+     */
+    public AsyncDatabaseConnector(DatabaseConnector dbConn) throws IllegalArgumentException {
+        this(dbConn, dbConn == null ? 1 : dbConn.getPoolSize(), DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Constructor that initializes AsyncDatabaseConnector with a concurrency bound and timeout.
+     * @param dbConn connector to run calls on
+     * @param maxConcurrency maximum number of calls running at once
+     * @param timeoutMillis time after which a call completes with a TimeoutException
+     */
+    public AsyncDatabaseConnector(DatabaseConnector dbConn, int maxConcurrency, long timeoutMillis)
+            throws IllegalArgumentException {
+        if (dbConn == null) {
+            throw new IllegalArgumentException("Invalid null argument for dbConn.");
+        } else if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Max concurrency must be positive.");
+        } else if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive.");
+        }
+
+        this.dbConn = dbConn;
+        this.executor = newExecutor(maxConcurrency);
+        this.permits = new Semaphore(maxConcurrency);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Inserts an entry into the specified table.
+     * @param tableName table to insert into
+     * @param columns list of column names
+     * @param values list of entry values
+     * @return future row count
+     */
+    public CompletableFuture<Integer> insert(String tableName, String[] columns, String[] values) {
+        return submit(() -> check(this.dbConn.insert(tableName, columns, values), "Failed to insert into table."));
+    }
+
+    /**
+     * Updates entries in the specified table with a given condition.
+     * @param tableName table to update
+     * @param columns list of columns to update
+     * @param values list of entry values
+     * @param condition condition to select which entries to update
+     * @return future row count
+     */
+    public CompletableFuture<Integer> update(String tableName, String[] columns, String[] values, String condition) {
+        return submit(() -> check(this.dbConn.update(tableName, columns, values, condition),
+                "Failed to update table."));
+    }
+
+    /**
+     * Deletes entries in the specified table.
+     * @param tableName table to delete entries from
+     * @param condition condition to select which entries to delete
+     * @return future row count
+     */
+    public CompletableFuture<Integer> delete(String tableName, String condition) {
+        return submit(() -> check(this.dbConn.delete(tableName, condition), "Failed to delete from table."));
+    }
+
+    /**
+     * Queries entries from a table with a given condition.
+     * @param tableName table to query from
+     * @param columns columns to select
+     * @param condition condition to specify which entries to query
+     * @return future query data
+     */
+    public CompletableFuture<Map<String, Object>[]> select(String tableName, String[] columns, String condition) {
+        return submit(() -> {
+            // every row map is built as a Map<String, Object>
+            @SuppressWarnings("unchecked")
+            Map<String, Object>[] query = (Map<String, Object>[]) this.dbConn.select(tableName, columns, condition);
+            if (query == null) {
+                throw new SQLException("Failed to query table.");
+            }
+            return query;
+        });
+    }
+
+    /**
+     * Checks if a table has a row whose column equals a value.
+     * @param tableName table to check
+     * @param column column to compare
+     * @param value value to look for
+     * @return future that is true if a row matches
+     */
+    public CompletableFuture<Boolean> exists(String tableName, String column, Object value) {
+        return submit(() -> check(this.dbConn.exists(tableName, column, value), "Failed to check existence.") == 1);
+    }
+
+    /**
+     * Inserts rows into the specified table with JDBC batches.
+     * @param tableName table to insert into
+     * @param columns list of column names
+     * @param rows rows of entry values, one value per column
+     * @param batchSize number of rows sent per batch
+     * @param progress receiver of the number of rows committed so far, may be null
+     * @return future row count
+     */
+    public CompletableFuture<Long> insertBatch(String tableName, String[] columns, Iterator<String[]> rows,
+                                               int batchSize, LongConsumer progress) {
+        return submit(() -> check(this.dbConn.insertBatch(tableName, columns, rows, batchSize, progress),
+                "Failed to insert batch."));
+    }
+
+    /**
+     * Streams the rows of a table matching a condition to a callback, which runs on the task's thread.
+     * @param tableName table to scan
+     * @param columns columns to select
+     * @param condition condition to specify which entries to scan, or null for every entry
+     * @param fetchSize number of rows fetched per round trip
+     * @param action callback run for each row
+     * @return future row count
+     */
+    public CompletableFuture<Long> scan(String tableName, String[] columns, String condition, int fetchSize,
+                                        Consumer<ResultRow> action) {
+        return submit(() -> check(this.dbConn.scan(tableName, columns, condition, fetchSize, action),
+                "Failed to scan table."));
+    }
+
+    /**
+     * Stops accepting calls. Calls already submitted still run.
+     */
+    @Override
+    public void close() {
+        this.executor.shutdown();
+    }
+
+    /**
+     * Runs a call as a task bounded by the semaphore and timeout.
+     * @param call call to run
+     * @param <R> type of result
+     * @return future completed with the call's result or exception
+     */
+    private <R> CompletableFuture<R> submit(Callable<R> call) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = this.executor.submit(() -> {
+                try {
+                    this.permits.acquire();
+                } catch (InterruptedException ie) {
+                    result.completeExceptionally(ie);
+                    return;
+                }
+                try {
+                    // skip calls cancelled or timed out while waiting for a permit
+                    if (!result.isDone()) {
+                        result.complete(call.call());
+                    }
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                } finally {
+                    this.permits.release();
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            result.completeExceptionally(ree);
+            return result;
+        }
+
+        // interrupt the task when the caller cancels or the call times out
+        result.orTimeout(this.timeoutMillis, TimeUnit.MILLISECONDS).whenComplete((value, t) -> {
+            if (t instanceof CancellationException || t instanceof TimeoutException) {
+                task.cancel(true);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Converts a sentinel row count to an exception.
+     * @param res row count or -1
+     * @param message exception message
+     * @return row count
+     */
+    private static int check(int res, String message) throws SQLException {
+        if (res < 0) {
+            throw new SQLException(message);
+        }
+
+        return res;
+    }
+
+    /**
+     * Converts a sentinel row count to an exception.
+     * @param res row count or -1
+     * @param message exception message
+     * @return row count
+     */
+    private static long check(long res, String message) throws SQLException {
+        if (res < 0) {
+            throw new SQLException(message);
+        }
+
+        return res;
+    }
+
+    /**
+     * Creates a virtual-thread-per-task executor when the runtime has one, or a fixed pool of daemon threads.
+     * @param maxConcurrency number of pool threads when virtual threads are unavailable
+     * @return executor for calls
+     */
+    private static ExecutorService newExecutor(int maxConcurrency) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException roe) {
+            logger.log(Level.FINE, "Virtual threads are unavailable, using platform threads.");
+            return Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+                Thread thread = new Thread(runnable, "async-database-connector");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Getter for timeout.
+     * @return timeout in milliseconds
+     */
+    public long getTimeoutMillis() {
+        return this.timeoutMillis;
+    }
+}
@@ -0,0 +1,214 @@
+package DataUtilities;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A bounded pool of database connections. Connections are opened lazily up to the pool size, handed to one caller at
+ * a time, and keep a cache of their prepared statements so that repeated SQL is parsed once per connection.
+ */
+final class ConnectionPool {
+    private static final int STATEMENT_CACHE_SIZE = 64;
+    private static final long RETRY_MILLIS = 50;  // interval to recheck for capacity freed by discarded connections
+
+    private static Logger logger = Logger.getLogger(ConnectionPool.class.getName());
+
+    private final String url;
+    private final String user;
+    private final String pw;
+    private final long timeoutMillis;
+    private final BlockingQueue<PooledConnection> idle = new LinkedBlockingQueue<>();
+    private final Semaphore permits;    // one permit per connection that may still be opened
+    private volatile boolean closed;
+
+    /**
+     * A pooled connection with its prepared statement cache. Used by one thread at a time.
+     */
+    static final class PooledConnection {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements;
+
+        /**
+         * Constructor that wraps an open connection.
+         * @param connection open connection
+         */
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+
+            // access-ordered map that closes the least recently used statement
+            this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() <= STATEMENT_CACHE_SIZE) {
+                        return false;
+                    }
+                    closeStatement(eldest.getValue());
+                    return true;
+                }
+            };
+        }
+
+        /**
+         * Getter for connection.
+         * @return connection
+         */
+        Connection connection() {
+            return this.connection;
+        }
+
+        /**
+         * Returns the cached prepared statement for an SQL string, preparing it on first use. The statement must not
+         * be closed by the caller.
+         * @param sql SQL string with parameter placeholders
+         * @return prepared statement
+         */
+        PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement stmt = this.statements.get(sql);
+            if (stmt == null) {
+                stmt = this.connection.prepareStatement(sql);
+                this.statements.put(sql, stmt);
+            }
+
+            return stmt;
+        }
+
+        /**
+         * Checks if the connection still works after an error.
+         * @return true if the connection is usable, false otherwise
+         */
+        boolean isValid() {
+            try {
+                return this.connection.isValid(1);
+            } catch (SQLException sqle) {
+                return false;
+            }
+        }
+
+        /**
+         * Closes the cached statements and the connection, logging any failure.
+         */
+        void close() {
+            for (PreparedStatement stmt : this.statements.values()) {
+                closeStatement(stmt);
+            }
+            this.statements.clear();
+            try {
+                this.connection.close();
+            } catch (SQLException sqle) {
+                logger.log(Level.SEVERE, "Failed to close connection with exception: " + sqle);
+            }
+        }
+
+        /**
+         * Closes a prepared statement, logging any failure.
+         * @param stmt statement to close
+         */
+        private static void closeStatement(PreparedStatement stmt) {
+            try {
+                stmt.close();
+            } catch (SQLException sqle) {
+                logger.log(Level.SEVERE, "Failed to close statement with exception: " + sqle);
+            }
+        }
+    }
+
+    /**
+     * Constructor that initializes an empty pool.
+     * @param url database url
+     * @param user database user
+     * @param pw database password
+     * @param size maximum number of open connections
+     * @param timeoutMillis time to wait for a free connection before failing
+     */
+    ConnectionPool(String url, String user, String pw, int size, long timeoutMillis) {
+        this.url = url;
+        this.user = user;
+        this.pw = pw;
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(size);
+    }
+
+    /**
+     * Takes an idle connection, opens a new one if the pool is not full, or waits for one to be released.
+     * @return connection for the exclusive use of the caller until released
+     */
+    PooledConnection acquire() throws SQLException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.timeoutMillis);
+        while (true) {
+            if (this.closed) {
+                throw new SQLException("Connection pool is closed.");
+            }
+
+            PooledConnection pc = this.idle.poll();
+            if (pc != null) {
+                return pc;
+            }
+            if (this.permits.tryAcquire()) {
+                try {
+                    return new PooledConnection(DriverManager.getConnection(this.url, this.user, this.pw));
+                } catch (SQLException sqle) {
+                    this.permits.release();
+                    throw sqle;
+                }
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new SQLException("Timed out waiting for a pooled connection.");
+            }
+            try {
+                pc = this.idle.poll(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(RETRY_MILLIS)),
+                        TimeUnit.NANOSECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a pooled connection.");
+            }
+            if (pc != null) {
+                return pc;
+            }
+        }
+    }
+
+    /**
+     * Returns a connection to the pool, closing it instead if it is broken or the pool is closed.
+     * @param pc connection to return
+     * @param broken true if the connection failed and must not be reused
+     */
+    void release(PooledConnection pc, boolean broken) {
+        if (broken || this.closed) {
+            pc.close();
+            this.permits.release();
+            return;
+        }
+
+        this.idle.offer(pc);
+
+        // close a connection returned while close was draining the pool
+        if (this.closed && this.idle.remove(pc)) {
+            pc.close();
+            this.permits.release();
+        }
+    }
+
+    /**
+     * Closes every idle connection. Connections in use are closed when released.
+     */
+    void close() {
+        this.closed = true;
+        PooledConnection pc;
+        while ((pc = this.idle.poll()) != null) {
+            pc.close();
+            this.permits.release();
+        }
+    }
+}
@@ -1,22 +1,43 @@
 package DataUtilities;
 
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * A class to interface with a PostgreSQL database.
+ * A class to interface with a PostgreSQL database. Calls draw connections from a built-in pool, so a connector may be
+ * shared by concurrent threads, and insert, update and exists reuse prepared statements cached per connection.
  */
 public class DatabaseConnector {
+    private static final int DEFAULT_POOL_SIZE = 4;
+    private static final long POOL_TIMEOUT_MILLIS = 30000;
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int DEFAULT_FETCH_SIZE = 10000;
+
     private String url;
     private String user;
     private String pw;
-    private Connection conn;
+    private int poolSize;
+    private volatile ConnectionPool pool;
 
     private static Logger logger = Logger.getLogger(TextLoader.class.getName());
 
+    /**
+     * Task run on a pooled connection.
+     */
+    private interface ConnectionTask<R> {
+        R run(ConnectionPool.PooledConnection pc) throws SQLException;
+    }
+
     /**
      * Constructor to initialize DatabaseConnector.
      * @param url database url
@@ -24,41 +45,66 @@ public class DatabaseConnector {
      * @param pw database password
      */
     public DatabaseConnector(String url, String user, String pw) throws IllegalArgumentException {
+        this(url, user, pw, DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * Constructor to initialize DatabaseConnector with a connection pool size.
+     * @param url database url
+     * @param user database user
+     * @param pw database password
+     * @param poolSize maximum number of open connections
+     */
+    public DatabaseConnector(String url, String user, String pw, int poolSize) throws IllegalArgumentException {
         if (url == null) {
             throw new IllegalArgumentException("Invalid null argument for url.");
         } else if (user == null) {
             throw new IllegalArgumentException("Invalid null argument for user.");
         } else if (pw == null) {
             throw new IllegalArgumentException("Invalid null argument for pw.");
+        } else if (poolSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive.");
         }
 
         this.url = url;
         this.user = user;
         this.pw = pw;
-        this.conn = null;
+        this.poolSize = poolSize;
+        this.pool = null;
     }
 
     /**
-     * Method that establishes database connection.
+     * Method that establishes database connection. Opens the first pooled connection, and further ones as
+     * concurrent calls need them.
      */
     public void connect() {
+        if (this.pool != null) {
+            this.pool.close();
+        }
+
+        ConnectionPool pool = new ConnectionPool(this.url, this.user, this.pw, this.poolSize, POOL_TIMEOUT_MILLIS);
         try {
-            this.conn = DriverManager.getConnection(this.url, this.user, this.pw);
+            pool.release(pool.acquire(), false);
+            this.pool = pool;
             logger.log(Level.FINE, "Successfully connected to database.");
         } catch (SQLException sqle) {
+            pool.close();
+            this.pool = null;
             logger.log(Level.SEVERE, String.format("Failed to connect with exception: %s", sqle));
         }
     }
 
     /**
-     * Method that disconnects from the database.
+     * Method that disconnects from the database. Connections in use are closed when their calls finish.
      */
     public void disconnect() {
-        try {
-            this.conn.close();
-        } catch (SQLException sqle) {
-            logger.log(Level.SEVERE, String.format("Failed to disconnect with exception: %s", sqle));
+        if (this.pool == null) {
+            logger.log(Level.SEVERE, "Failed to disconnect with exception: not connected.");
+            return;
         }
+
+        this.pool.close();
+        this.pool = null;
     }
 
     /**
@@ -157,30 +203,163 @@ public class DatabaseConnector {
         } else if (columns.length != values.length) {
             throw new IllegalArgumentException("Column and value array lengths do not match.");
         }
-        StringBuilder colStrBuilder = new StringBuilder();
-        StringBuilder valueStrBuilder = new StringBuilder();
 
-        // build column and value strings
-        colStrBuilder.append("(");
-        valueStrBuilder.append("VALUES (");
-        for (int i = 0; i < columns.length; i++) {
-            colStrBuilder.append(String.format("%s", columns[i]));
-            valueStrBuilder.append(String.format("'%s'", values[i]));
+        return updatePreparedInternal(
+                insertSql(tableName, columns),
+                values,
+                "Failed to insert into table with exception: "
+        );
+    }
 
-            // handle last case
-            if (i == columns.length - 1) {
-                colStrBuilder.append(")");
-                valueStrBuilder.append(")");
-            } else {
-                colStrBuilder.append(",");
-                valueStrBuilder.append(",");
+    /**
+     * Inserts rows into the specified table with JDBC batches of the default size.
+     * @param tableName table to insert into
+     * @param columns list of column names
+     * @param rows rows of entry values, one value per column
+     * @return row count or -1 if error occurs
+     */
+    public long insertBatch(String tableName, String[] columns, Iterator<String[]> rows)
+            throws IllegalArgumentException {
+        return insertBatch(tableName, columns, rows, DEFAULT_BATCH_SIZE, null);
+    }
+
+    /**
+     * Inserts rows into the specified table with JDBC batches. Each batch is committed on its own, so rows of batches
+     * reported to progress stay inserted if a later batch fails.
+     * @param tableName table to insert into
+     * @param columns list of column names
+     * @param rows rows of entry values, one value per column
+     * @param batchSize number of rows sent per batch
+     * @param progress receiver of the number of rows committed so far, may be null
+     * @return row count or -1 if error occurs
+     */
+    public long insertBatch(String tableName, String[] columns, Iterator<String[]> rows, int batchSize,
+                            LongConsumer progress) throws IllegalArgumentException {
+        if (tableName == null) {
+            throw new IllegalArgumentException("Invalid null argument for tableName.");
+        } else if (columns == null) {
+            throw new IllegalArgumentException("Invalid null argument for columns.");
+        } else if (rows == null) {
+            throw new IllegalArgumentException("Invalid null argument for rows.");
+        } else if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive.");
+        }
+
+        String sql = insertSql(tableName, columns);
+        return withConnection(pc -> {
+            Connection connection = pc.connection();
+            PreparedStatement stmt = pc.prepare(sql);
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                long inserted = 0;
+                int pending = 0;
+                while (rows.hasNext()) {
+                    String[] row = rows.next();
+                    if (row == null || row.length != columns.length) {
+                        throw new IllegalArgumentException("Column and value array lengths do not match.");
+                    }
+                    for (int i = 0; i < row.length; i++) {
+                        stmt.setObject(i + 1, row[i], Types.OTHER);
+                    }
+                    stmt.addBatch();
+
+                    // send and commit every full batch
+                    if (++pending == batchSize || !rows.hasNext()) {
+                        stmt.executeBatch();
+                        connection.commit();
+                        inserted += pending;
+                        pending = 0;
+                        if (progress != null) {
+                            progress.accept(inserted);
+                        }
+                    }
+                }
+
+                return inserted;
+            } catch (SQLException | RuntimeException e) {
+                // keep the original failure if cleanup fails too
+                try {
+                    stmt.clearBatch();
+                } catch (SQLException cleanup) {
+                    e.addSuppressed(cleanup);
+                }
+                try {
+                    connection.rollback();
+                } catch (SQLException cleanup) {
+                    e.addSuppressed(cleanup);
+                }
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
             }
+        }, -1L, "Failed to insert batch with exception: ");
+    }
+
+    /**
+     * Inserts lines, such as those of TextLoader.streamLines, into one column of the specified table with JDBC
+     * batches.
+     * @param tableName table to insert into
+     * @param column column to insert lines into
+     * @param lines lines to insert
+     * @param batchSize number of rows sent per batch
+     * @param progress receiver of the number of rows committed so far, may be null
+     * @return row count or -1 if error occurs
+     */
+    public long insertBatch(String tableName, String column, Stream<String> lines, int batchSize,
+                            LongConsumer progress) throws IllegalArgumentException {
+        if (column == null) {
+            throw new IllegalArgumentException("Invalid null argument for column.");
+        } else if (lines == null) {
+            throw new IllegalArgumentException("Invalid null argument for lines.");
         }
 
-        return updateDatabaseInternal(
-                String.format("INSERT INTO %s %s %s;", tableName, colStrBuilder.toString(), valueStrBuilder.toString()),
-                        "Failed to insert into table with exception: "
-        );
+        return insertBatch(tableName, new String[]{column}, lines.map(line -> new String[]{line}).iterator(),
+                batchSize, progress);
+    }
+
+    /**
+     * Copies rows into the specified table with PostgreSQL's COPY FROM STDIN, which streams the rows in a single
+     * statement. The copy is all or nothing. Requires the PostgreSQL JDBC driver.
+     * @param tableName table to copy into
+     * @param columns list of column names
+     * @param rows rows of entry values, one value per column, where null is copied as SQL NULL
+     * @param progress receiver of the number of rows sent so far, may be null
+     * @return row count or -1 if error occurs
+     */
+    public long copyIn(String tableName, String[] columns, Iterator<String[]> rows, LongConsumer progress)
+            throws IllegalArgumentException {
+        if (tableName == null) {
+            throw new IllegalArgumentException("Invalid null argument for tableName.");
+        } else if (columns == null) {
+            throw new IllegalArgumentException("Invalid null argument for columns.");
+        } else if (rows == null) {
+            throw new IllegalArgumentException("Invalid null argument for rows.");
+        }
+
+        String sql = String.format("COPY %s (%s) FROM STDIN", tableName, String.join(",", columns));
+        return withConnection(pc -> PostgresCopy.copyIn(pc.connection(), sql, columns.length, rows, progress),
+                -1L, "Failed to copy into table with exception: ");
+    }
+
+    /**
+     * Copies lines, such as those of TextLoader.streamLines, into one column of the specified table with PostgreSQL's
+     * COPY FROM STDIN.
+     * @param tableName table to copy into
+     * @param column column to copy lines into
+     * @param lines lines to copy
+     * @param progress receiver of the number of rows sent so far, may be null
+     * @return row count or -1 if error occurs
+     */
+    public long copyIn(String tableName, String column, Stream<String> lines, LongConsumer progress)
+            throws IllegalArgumentException {
+        if (column == null) {
+            throw new IllegalArgumentException("Invalid null argument for column.");
+        } else if (lines == null) {
+            throw new IllegalArgumentException("Invalid null argument for lines.");
+        }
+
+        return copyIn(tableName, new String[]{column}, lines.map(line -> new String[]{line}).iterator(), progress);
     }
 
     /**
@@ -203,11 +382,10 @@ public class DatabaseConnector {
 
         StringBuilder valueStrBuilder = new StringBuilder();
 
-        // build value strings
+        // build assignment strings
         for (int i = 0; i < columns.length; i++) {
             valueStrBuilder.append(columns[i]);
-            valueStrBuilder.append(" = ");
-            valueStrBuilder.append(String.format("'%s'", values[i]));
+            valueStrBuilder.append(" = ?");
 
             // handle last case
             if (i != columns.length - 1) {
@@ -215,8 +393,9 @@ public class DatabaseConnector {
             }
         }
 
-        return updateDatabaseInternal(
+        return updatePreparedInternal(
                 String.format("UPDATE %s SET %s;", tableName, valueStrBuilder.toString()),
+                values,
                 "Failed to update table with exception: "
         );
     }
@@ -244,11 +423,10 @@ public class DatabaseConnector {
 
         StringBuilder valueStrBuilder = new StringBuilder();
 
-        // build value strings
+        // build assignment strings
         for (int i = 0; i < columns.length; i++) {
             valueStrBuilder.append(columns[i]);
-            valueStrBuilder.append(" = ");
-            valueStrBuilder.append(String.format("'%s'", values[i]));
+            valueStrBuilder.append(" = ?");
 
             // handle last case
             if (i != columns.length - 1) {
@@ -256,8 +434,9 @@ public class DatabaseConnector {
             }
         }
 
-        return updateDatabaseInternal(
+        return updatePreparedInternal(
                 String.format("UPDATE %s SET %s WHERE %s;", tableName, valueStrBuilder.toString(), condition),
+                values,
                 "Failed to update table with exception: "
         );
     }
@@ -344,6 +523,201 @@ public class DatabaseConnector {
         );
     }
 
+    /**
+     * Streams every row of a table to a callback with the default fetch size.
+     * @param tableName table to scan
+     * @param columns columns to select
+     * @param action callback run for each row
+     * @return row count or -1 if error occurs
+     */
+    public long scan(String tableName, String[] columns, Consumer<ResultRow> action) throws IllegalArgumentException {
+        return scan(tableName, columns, null, DEFAULT_FETCH_SIZE, action);
+    }
+
+    /**
+     * Streams the rows of a table matching a condition to a callback. The scan is forward-only and fetches rows in
+     * batches of fetchSize through a server-side cursor, so memory use does not grow with the table. The callback
+     * receives the same reusable row view for every row. An exception thrown by the callback stops the scan and is
+     * rethrown.
+     * @param tableName table to scan
+     * @param columns columns to select
+     * @param condition condition to specify which entries to scan, or null for every entry
+     * @param fetchSize number of rows fetched per round trip
+     * @param action callback run for each row
+     * @return row count or -1 if error occurs
+     */
+    public long scan(String tableName, String[] columns, String condition, int fetchSize, Consumer<ResultRow> action)
+            throws IllegalArgumentException {
+        return scan(tableName, columns, condition, fetchSize, null, action);
+    }
+
+    /**
+     * Streams the rows of a table matching a condition to a callback, reading them as of an exported snapshot when one
+     * is given, so that several scans on different connections see the same rows.
+     * @param tableName table to scan
+     * @param columns columns to select
+     * @param condition condition to specify which entries to scan, or null for every entry
+     * @param fetchSize number of rows fetched per round trip
+     * @param snapshot snapshot id from withExportedSnapshot, or null to read the latest committed rows
+     * @param action callback run for each row
+     * @return row count or -1 if error occurs
+     */
+    long scan(String tableName, String[] columns, String condition, int fetchSize, String snapshot,
+              Consumer<ResultRow> action) throws IllegalArgumentException {
+        if (tableName == null) {
+            throw new IllegalArgumentException("Invalid null argument for tableName.");
+        } else if (columns == null) {
+            throw new IllegalArgumentException("Invalid null argument for columns.");
+        } else if (action == null) {
+            throw new IllegalArgumentException("Invalid null argument for action.");
+        } else if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be positive.");
+        }
+
+        String sql = condition == null
+                ? String.format("SELECT %s FROM %s;", String.join(",", columns), tableName)
+                : String.format("SELECT %s FROM %s WHERE %s;", String.join(",", columns), tableName, condition);
+        return withConnection(pc -> {
+            Connection connection = pc.connection();
+            boolean autoCommit = connection.getAutoCommit();
+            int isolation = connection.getTransactionIsolation();
+
+            // PostgreSQL only fetches through a cursor inside a transaction
+            connection.setAutoCommit(false);
+            if (snapshot != null) {
+                connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            }
+            try (Statement stmt = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                if (snapshot != null) {
+                    // must be the first statement of the transaction
+                    stmt.execute(String.format("SET TRANSACTION SNAPSHOT '%s';", snapshot));
+                }
+                stmt.setFetchSize(fetchSize);
+                ResultRow row = new ResultRow(columns);
+                long count = 0;
+                try (ResultSet res = stmt.executeQuery(sql)) {
+                    while (res.next()) {
+                        row.load(res);
+                        action.accept(row);
+                        count++;
+                    }
+                }
+                connection.commit();
+
+                return count;
+            } catch (SQLException | RuntimeException e) {
+                // keep the original failure if the rollback fails too
+                try {
+                    connection.rollback();
+                } catch (SQLException cleanup) {
+                    e.addSuppressed(cleanup);
+                }
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+                connection.setTransactionIsolation(isolation);
+            }
+        }, -1L, "Failed to scan table with exception: ");
+    }
+
+    /**
+     * Exports a snapshot from a REPEATABLE READ transaction on one pooled connection and runs a task with its id. The
+     * transaction stays open, holding its pooled connection, until the task returns, so scans given the id may start
+     * at any point during the task.
+     * @param task task run with the snapshot id
+     * @param failure result if the snapshot cannot be exported
+     * @param <R> type of result
+     * @return task result or failure if error occurs
+     */
+    <R> R withExportedSnapshot(Function<String, R> task, R failure) {
+        return withConnection(pc -> {
+            Connection connection = pc.connection();
+            boolean autoCommit = connection.getAutoCommit();
+            int isolation = connection.getTransactionIsolation();
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try (Statement stmt = connection.createStatement()) {
+                String snapshot;
+                try (ResultSet res = stmt.executeQuery("SELECT pg_export_snapshot();")) {
+                    res.next();
+                    snapshot = res.getString(1);
+                }
+
+                // the transaction only read, so rolling it back releases the snapshot
+                R result = task.apply(snapshot);
+                connection.rollback();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                // keep the original failure if the rollback fails too
+                try {
+                    connection.rollback();
+                } catch (SQLException cleanup) {
+                    e.addSuppressed(cleanup);
+                }
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+                connection.setTransactionIsolation(isolation);
+            }
+        }, failure, "Failed to export snapshot with exception: ");
+    }
+
+    /**
+     * Checks if a table has a row whose column equals a value. The value is bound as a statement parameter.
+     * @param tableName table to check
+     * @param column column to compare
+     * @param value value to look for
+     * @return 1 if a row matches, 0 if none does, or -1 if error occurs
+     */
+    public int exists(String tableName, String column, Object value) throws IllegalArgumentException {
+        if (tableName == null) {
+            throw new IllegalArgumentException("Invalid null argument for tableName.");
+        } else if (column == null) {
+            throw new IllegalArgumentException("Invalid null argument for column.");
+        } else if (value == null) {
+            throw new IllegalArgumentException("Invalid null argument for value.");
+        }
+
+        String sql = String.format("SELECT 1 FROM %s WHERE %s = ? LIMIT 1;", tableName, column);
+        return withConnection(pc -> {
+            PreparedStatement stmt = pc.prepare(sql);
+            stmt.setObject(1, value);
+            try (ResultSet res = stmt.executeQuery()) {
+                return res.next() ? 1 : 0;
+            }
+        }, -1, "Failed to check existence with exception: ");
+    }
+
+    /**
+     * Internal function to build a parameterized insert statement
+     * @param tableName table to insert into
+     * @param columns list of column names
+     * @return SQL statement with one parameter per column
+     */
+    private static String insertSql(String tableName, String[] columns) {
+        StringBuilder colStrBuilder = new StringBuilder();
+        StringBuilder valueStrBuilder = new StringBuilder();
+
+        // build column and parameter strings
+        colStrBuilder.append("(");
+        valueStrBuilder.append("VALUES (");
+        for (int i = 0; i < columns.length; i++) {
+            colStrBuilder.append(String.format("%s", columns[i]));
+            valueStrBuilder.append("?");
+
+            // handle last case
+            if (i == columns.length - 1) {
+                colStrBuilder.append(")");
+                valueStrBuilder.append(")");
+            } else {
+                colStrBuilder.append(",");
+                valueStrBuilder.append(",");
+            }
+        }
+
+        return String.format("INSERT INTO %s %s %s;", tableName, colStrBuilder.toString(), valueStrBuilder.toString());
+    }
+
     /**
      * Internal function to update the database
      * @param sql SQL statement to execute
@@ -351,15 +725,29 @@ public class DatabaseConnector {
      * @return row count or -1 if error occurs
      */
     private int updateDatabaseInternal(String sql, String errorMessage) {
-        try {
-            Statement stmt = conn.createStatement();
-            int res = stmt.executeUpdate(sql);
-            stmt.close();
-            return res;
-        } catch (SQLException sqle) {
-            logger.log(Level.SEVERE, errorMessage + sqle);
-            return -1;
-        }
+        return withConnection(pc -> {
+            try (Statement stmt = pc.connection().createStatement()) {
+                return stmt.executeUpdate(sql);
+            }
+        }, -1, errorMessage);
+    }
+
+    /**
+     * Internal function to update the database with a cached prepared statement
+     * @param sql SQL statement with one parameter per value
+     * @param values parameter values
+     * @param errorMessage error message if execution fails
+     * @return row count or -1 if error occurs
+     */
+    private int updatePreparedInternal(String sql, String[] values, String errorMessage) {
+        return withConnection(pc -> {
+            PreparedStatement stmt = pc.prepare(sql);
+            for (int i = 0; i < values.length; i++) {
+                // bind as untyped so PostgreSQL casts the text to the column type, like a quoted literal
+                stmt.setObject(i + 1, values[i], Types.OTHER);
+            }
+            return stmt.executeUpdate();
+        }, -1, errorMessage);
     }
 
     /**
@@ -370,37 +758,66 @@ public class DatabaseConnector {
      * @return query data or null if error occurs
      */
     private Map[] queryDatabaseInternal(String sql, String[] columns, String errorMessage) {
-        Map[] query;
-        try {
-            Statement stmt = conn.createStatement(ResultSet.TYPE_SCROLL_SENSITIVE, ResultSet.CONCUR_READ_ONLY);
-            ResultSet res = stmt.executeQuery(sql);
-
-            // get the number of entries and initialize query
-            res.last();
-            int entry_count = res.getRow();
-            boolean valid = res.first();
-            query = new Map[entry_count];
-
-            // iterate through every row
-            int row = 0;
-            do {
-                if (valid) { // check no-entries edge case
-                    // retrieve column-value map
+        return withConnection(pc -> {
+            try (Statement stmt = pc.connection().createStatement()) {
+                ResultSet res = stmt.executeQuery(sql);
+
+                // iterate forward through every row, retrieving column-value maps
+                List<Map> query = new ArrayList<>();
+                while (res.next()) {
                     Map<String, Object> entry = new HashMap<>();
                     for (String col : columns) {
                         entry.put(col, res.getObject(col));
                     }
-                    query[row] = entry;
-                    row++;
+                    query.add(entry);
                 }
-            } while (res.next());
-            stmt.close();
+
+                return query.toArray(new Map[0]);
+            }
+        }, null, errorMessage);
+    }
+
+    /**
+     * Internal function to run a task on a pooled connection. A connection that fails and no longer responds is
+     * discarded instead of returned to the pool.
+     * @param task task to run
+     * @param failure result if the task fails
+     * @param errorMessage error message if the task fails
+     * @return task result or failure if error occurs
+     */
+    private <R> R withConnection(ConnectionTask<R> task, R failure, String errorMessage) {
+        ConnectionPool pool = this.pool;
+        if (pool == null) {
+            logger.log(Level.SEVERE, errorMessage + "not connected.");
+            return failure;
+        }
+
+        ConnectionPool.PooledConnection pc;
+        try {
+            pc = pool.acquire();
         } catch (SQLException sqle) {
             logger.log(Level.SEVERE, errorMessage + sqle);
-            return null;
+            return failure;
         }
 
-        return query;
+        boolean broken = false;
+        try {
+            return task.run(pc);
+        } catch (SQLException sqle) {
+            broken = !pc.isValid();
+            logger.log(Level.SEVERE, errorMessage + sqle);
+            return failure;
+        } finally {
+            pool.release(pc, broken);
+        }
+    }
+
+    /**
+     * Getter for maximum number of open connections.
+     * @return pool size
+     */
+    public int getPoolSize() {
+        return poolSize;
     }
 
     /**
@@ -0,0 +1,194 @@
+package DataUtilities;
+
+import BloomFilter.BloomFilter;
+import BloomFilterUtilities.FilterSizing;
+import BloomFilterUtilities.Funnels;
+import BloomFilterUtilities.HashStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Builds a BloomFilter from a column of a PostgreSQL table. The table's heap is split into ranges of pages, each range
+ * is read by a streaming scan filtered on ctid on its own pooled connection, and every worker thread adds its rows to
+ * its own shard filter with identical parameters. The shards are merged when all scans finish. On PostgreSQL 14 and
+ * later a ctid range is read with a TID range scan, so each scan only touches its own pages.
+ * <p>
+ * Every scan imports one snapshot exported before the first scan starts, so the ranges together read the table as of
+ * a single point in time. Without it a row updated during the build could move to a range already scanned while its
+ * old version is no longer visible to a later one, and be missing from the filter. The exporting transaction holds
+ * one pooled connection for the whole build, so the connector needs a pool of at least two connections.
+ */
+public class DatabaseFilterBuilder {
+    private static final int FETCH_SIZE = 10000;
+
+    private static Logger logger = Logger.getLogger(DatabaseFilterBuilder.class.getName());
+
+    private int n;
+    private double fpr;
+    private HashStrategy hashStrategy;
+    private int partitions;
+
+    /**
+     * Constructor that initializes builder given expected number of elements, target false-positive rate, hashing
+     * strategy and number of page ranges to scan.
+     * @param n expected number of elements to be stored by the BloomFilter.
+     * @param fpr target false positive rate
+     * @param hashStrategy strategy used to derive the k indexes of an element
+     * @param partitions number of page ranges, scanned concurrently up to the connector's pool size
+     */
+    public DatabaseFilterBuilder(int n, double fpr, HashStrategy hashStrategy, int partitions)
+            throws IllegalArgumentException {
+        if (hashStrategy == null) {
+            throw new IllegalArgumentException("Invalid null argument for hashStrategy.");
+        } else if (partitions <= 0) {
+            throw new IllegalArgumentException("Partitions must be positive.");
+        }
+        FilterSizing.validate(n, fpr);
+
+        this.n = n;
+        this.fpr = fpr;
+        this.hashStrategy = hashStrategy;
+        this.partitions = partitions;
+    }
+
+    /**
+     * Builds a BloomFilter holding the non-null values of a column, each added as a string with Funnels.STRING.
+     * @param dbConn connected database connector
+     * @param tableName table to scan
+     * @param column column to add
+     * @return BloomFilter holding every value, or null if error occurs
+     */
+    public BloomFilter build(DatabaseConnector dbConn, String tableName, String column)
+            throws IllegalArgumentException {
+        if (dbConn == null) {
+            throw new IllegalArgumentException("Invalid null argument for dbConn.");
+        } else if (tableName == null) {
+            throw new IllegalArgumentException("Invalid null argument for tableName.");
+        } else if (column == null) {
+            throw new IllegalArgumentException("Invalid null argument for column.");
+        }
+
+        if (dbConn.getPoolSize() < 2) {
+            throw new IllegalArgumentException("Connector pool size must be at least 2.");
+        }
+
+        long pages = relationPages(dbConn, tableName);
+        if (pages < 0) {
+            return null;
+        }
+
+        return dbConn.withExportedSnapshot(snapshot -> scanPartitions(dbConn, tableName, column, pages, snapshot), null);
+    }
+
+    /**
+     * Scans every page range as of a snapshot and merges the shards.
+     * @param dbConn connected database connector
+     * @param tableName table to scan
+     * @param column column to add
+     * @param pages number of pages when the table was sized
+     * @param snapshot id of the exported snapshot every scan imports
+     * @return BloomFilter holding every value, or null if error occurs
+     */
+    private BloomFilter scanPartitions(DatabaseConnector dbConn, String tableName, String column, long pages,
+                                       String snapshot) {
+        // scan each page range on a worker thread, adding to that thread's shard; one connection holds the snapshot
+        Map<Thread, BloomFilter> shards = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.partitions, dbConn.getPoolSize() - 1));
+        try {
+            List<Future<Long>> scans = new ArrayList<>();
+            for (int i = 0; i < this.partitions; i++) {
+                String condition = pageRange(pages, i);
+                scans.add(executor.submit(() -> {
+                    BloomFilter shard = shards.computeIfAbsent(Thread.currentThread(),
+                            thread -> new BloomFilter(this.n, this.fpr, this.hashStrategy));
+                    return dbConn.scan(tableName, new String[]{column}, condition, FETCH_SIZE, snapshot, row -> {
+                        String value = row.getString(0);
+                        if (value != null) {
+                            shard.add(value, Funnels.STRING);
+                        }
+                    });
+                }));
+            }
+            for (Future<Long> scan : scans) {
+                if (scan.get() < 0) {
+                    logger.log(Level.SEVERE, "Failed to build filter: a partition scan failed.");
+                    return null;
+                }
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            logger.log(Level.SEVERE, "Failed to build filter with exception: " + ie);
+            return null;
+        } catch (ExecutionException ee) {
+            logger.log(Level.SEVERE, "Failed to build filter with exception: " + ee.getCause());
+            return null;
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // merge shards into the first one
+        BloomFilter result = null;
+        for (BloomFilter shard : shards.values()) {
+            if (result == null) {
+                result = shard;
+            } else {
+                result.merge(shard);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads the number of heap pages of a table.
+     * @param dbConn connected database connector
+     * @param tableName table to size
+     * @return number of pages or -1 if error occurs
+     */
+    private static long relationPages(DatabaseConnector dbConn, String tableName) {
+        long[] pages = new long[]{-1};
+        long res = dbConn.scan(
+                "pg_class",
+                new String[]{"pg_relation_size(oid) / current_setting('block_size')::bigint"},
+                String.format("oid = '%s'::regclass", tableName),
+                1,
+                row -> pages[0] = ((Number) row.get(0)).longValue()
+        );
+
+        return res == 1 ? pages[0] : -1;
+    }
+
+    /**
+     * Builds the ctid condition of a page range. The last range is open-ended, so rows on pages added after the table
+     * was sized are still read.
+     * @param pages number of pages when the table was sized
+     * @param partition index of range
+     * @return condition selecting the rows of the range
+     */
+    private String pageRange(long pages, int partition) {
+        long start = pages * partition / this.partitions;
+        if (partition == this.partitions - 1) {
+            return String.format("ctid >= '(%d,0)'::tid", start);
+        }
+
+        long end = pages * (partition + 1) / this.partitions;
+        return String.format("ctid >= '(%d,0)'::tid AND ctid < '(%d,0)'::tid", start, end);
+    }
+
+    /**
+     * Getter for number of page ranges.
+     * @return number of page ranges
+     */
+    public int getPartitions() {
+        return this.partitions;
+    }
+}
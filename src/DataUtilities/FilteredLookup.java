@@ -0,0 +1,150 @@
+package DataUtilities;
+
+import BloomFilter.MembershipQuery;
+import BloomFilterUtilities.Funnel;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A two-tier membership lookup. A filter rejects most absent values in memory, and values the filter may contain are
+ * confirmed with an exact, parameterized check against a database table. Confirmed results, both positive and
+ * negative, are kept in a bounded least recently used cache, so that a popular value reaches the database once.
+ * @param <T> type of values looked up
+ */
+public class FilteredLookup<T> {
+    private MembershipQuery filter;
+    private Funnel<? super T> funnel;
+    private DatabaseConnector dbConn;
+    private String tableName;
+    private String column;
+    private int cacheSize;
+    private Map<T, Boolean> cache;
+
+    private LongAdder filterRejects = new LongAdder();
+    private LongAdder cacheHits = new LongAdder();
+    private LongAdder databaseQueries = new LongAdder();
+
+    /**
+     * Constructor that initializes FilteredLookup. The filter must hold every value of the column, encoded with the
+     * given funnel.
+     * @param filter filter holding the values of the column
+     * @param funnel funnel used to encode values for the filter
+     * @param dbConn connected database connector
+     * @param tableName table holding the exact values
+     * @param column column holding the exact values
+     * @param cacheSize maximum number of cached results
+     */
+    public FilteredLookup(MembershipQuery filter, Funnel<? super T> funnel, DatabaseConnector dbConn,
+                          String tableName, String column, int cacheSize) throws IllegalArgumentException {
+        if (filter == null) {
+            throw new IllegalArgumentException("Invalid null argument for filter.");
+        } else if (funnel == null) {
+            throw new IllegalArgumentException("Invalid null argument for funnel.");
+        } else if (dbConn == null) {
+            throw new IllegalArgumentException("Invalid null argument for dbConn.");
+        } else if (tableName == null) {
+            throw new IllegalArgumentException("Invalid null argument for tableName.");
+        } else if (column == null) {
+            throw new IllegalArgumentException("Invalid null argument for column.");
+        } else if (cacheSize < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative.");
+        }
+
+        this.filter = filter;
+        this.funnel = funnel;
+        this.dbConn = dbConn;
+        this.tableName = tableName;
+        this.column = column;
+        this.cacheSize = cacheSize;
+
+        // access-ordered map that evicts the least recently used result
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<T, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<T, Boolean> eldest) {
+                return size() > FilteredLookup.this.cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Looks up a value. Concurrent lookups of the same uncached value may each query the database.
+     * @param value value to look up
+     * @return 1 if the value is in the table, 0 if it is not, or -1 if the database check fails
+     */
+    public int lookup(T value) throws IllegalArgumentException {
+        if (value == null) {
+            throw new IllegalArgumentException("Invalid null argument for value.");
+        }
+
+        // values the filter rejects are certainly absent
+        if (!this.filter.contains(value, this.funnel)) {
+            this.filterRejects.increment();
+            return 0;
+        }
+
+        Boolean cached = this.cache.get(value);
+        if (cached != null) {
+            this.cacheHits.increment();
+            return cached ? 1 : 0;
+        }
+
+        // confirm with the database, caching only successful checks
+        this.databaseQueries.increment();
+        int res = this.dbConn.exists(this.tableName, this.column, value);
+        if (res >= 0) {
+            this.cache.put(value, res == 1);
+        }
+
+        return res;
+    }
+
+    /**
+     * Removes the cached result of a value, for use after the value is inserted into or deleted from the table.
+     * @param value value to forget
+     */
+    public void invalidate(T value) {
+        this.cache.remove(value);
+    }
+
+    /**
+     * Removes every cached result.
+     */
+    public void clearCache() {
+        this.cache.clear();
+    }
+
+    /**
+     * Getter for number of cached results.
+     * @return number of cached results
+     */
+    public int getCacheCount() {
+        return this.cache.size();
+    }
+
+    /**
+     * Getter for number of lookups answered by the filter alone.
+     * @return number of filter rejects
+     */
+    public long getFilterRejects() {
+        return this.filterRejects.sum();
+    }
+
+    /**
+     * Getter for number of lookups answered by the cache.
+     * @return number of cache hits
+     */
+    public long getCacheHits() {
+        return this.cacheHits.sum();
+    }
+
+    /**
+     * Getter for number of lookups checked against the database.
+     * @return number of database queries
+     */
+    public long getDatabaseQueries() {
+        return this.databaseQueries.sum();
+    }
+}
@@ -0,0 +1,126 @@
+package DataUtilities;
+
+import java.nio.ByteBuffer;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A spliterator over the lines of a memory-mapped text file. Each line is returned as a read-only ByteBuffer slice of
+ * the mapping, without its line terminator and without decoding it to a String. The file is mapped in regions that
+ * end on line boundaries, and splits happen on region or newline boundaries, so every line is seen exactly once.
+ */
+public class MappedLineSpliterator implements Spliterator<ByteBuffer> {
+    private static final int MIN_SPLIT_BYTES = 1 << 16;
+
+    private ByteBuffer[] regions;
+    private int region;     // region holding the next line
+    private int pos;        // position of the next line in its region
+    private int lastRegion; // last region covered, inclusive
+    private int end;        // end of the covered range in the last region, exclusive
+
+    /**
+     * Constructor that initializes spliterator over whole regions.
+     * @param regions mapped regions, each ending on a line boundary
+     */
+    public MappedLineSpliterator(ByteBuffer[] regions) throws IllegalArgumentException {
+        this(regions, 0, 0, regions.length - 1, regions.length == 0 ? 0 : regions[regions.length - 1].limit());
+    }
+
+    /**
+     * Constructor that initializes spliterator over a range of regions.
+     * @param regions mapped regions, each ending on a line boundary
+     * @param region first region covered
+     * @param pos start of the covered range in the first region
+     * @param lastRegion last region covered, inclusive
+     * @param end end of the covered range in the last region, exclusive
+     */
+    private MappedLineSpliterator(ByteBuffer[] regions, int region, int pos, int lastRegion, int end) {
+        this.regions = regions;
+        this.region = region;
+        this.pos = pos;
+        this.lastRegion = lastRegion;
+        this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super ByteBuffer> action) {
+        while (this.region <= this.lastRegion) {
+            ByteBuffer buffer = this.regions[this.region];
+            int regionEnd = this.region == this.lastRegion ? this.end : buffer.limit();
+            if (this.pos >= regionEnd) {
+                // move on to the next region
+                this.region++;
+                this.pos = 0;
+                continue;
+            }
+
+            // find the end of the line; the last line of a file may have no terminator
+            int lineEnd = this.pos;
+            while (lineEnd < regionEnd && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int next = Math.min(lineEnd + 1, regionEnd);
+            if (lineEnd > this.pos && buffer.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+
+            ByteBuffer line = buffer.duplicate();
+            line.limit(lineEnd).position(this.pos);
+            this.pos = next;
+            action.accept(line.slice().asReadOnlyBuffer());
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public Spliterator<ByteBuffer> trySplit() {
+        if (this.region < this.lastRegion) {
+            // give away the first half of the remaining regions
+            int midRegion = this.region + (this.lastRegion - this.region - 1) / 2;
+            MappedLineSpliterator prefix = new MappedLineSpliterator(this.regions, this.region, this.pos, midRegion,
+                    this.regions[midRegion].limit());
+            this.region = midRegion + 1;
+            this.pos = 0;
+            return prefix;
+        }
+
+        if (this.region > this.lastRegion || this.end - this.pos < MIN_SPLIT_BYTES) {
+            return null;
+        }
+
+        // give away the lines before the first newline after the midpoint
+        ByteBuffer buffer = this.regions[this.region];
+        int split = (this.pos + this.end) >>> 1;
+        while (split < this.end && buffer.get(split) != '\n') {
+            split++;
+        }
+        if (split >= this.end - 1) {
+            return null;
+        }
+
+        MappedLineSpliterator prefix = new MappedLineSpliterator(this.regions, this.region, this.pos, this.region,
+                split + 1);
+        this.pos = split + 1;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        // number of bytes left, an upper bound on the number of lines
+        long size = 0;
+        for (int r = this.region; r <= this.lastRegion; r++) {
+            int start = r == this.region ? this.pos : 0;
+            int stop = r == this.lastRegion ? this.end : this.regions[r].limit();
+            size += Math.max(0, stop - start);
+        }
+
+        return size;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+}
@@ -0,0 +1,125 @@
+package DataUtilities;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.function.LongConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Streams rows into a table through PostgreSQL's COPY FROM STDIN in text format. Kept apart from DatabaseConnector so
+ * that the PostgreSQL driver classes are only loaded when COPY is used.
+ */
+final class PostgresCopy {
+    private static final int CHUNK_CHARS = 1 << 16;
+
+    private static Logger logger = Logger.getLogger(PostgresCopy.class.getName());
+
+    private PostgresCopy() {
+    }
+
+    /**
+     * Copies rows into a table.
+     * @param connection PostgreSQL connection
+     * @param sql COPY FROM STDIN statement
+     * @param columnCount number of columns in each row
+     * @param rows rows to copy, where a null value is copied as SQL NULL
+     * @param progress receiver of the number of rows sent so far, may be null
+     * @return number of rows copied
+     */
+    static long copyIn(Connection connection, String sql, int columnCount, Iterator<String[]> rows,
+                       LongConsumer progress) throws SQLException, IllegalArgumentException {
+        CopyIn copy = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+        try {
+            StringBuilder chunk = new StringBuilder(CHUNK_CHARS + 1024);
+            long sent = 0;
+            while (rows.hasNext()) {
+                String[] row = rows.next();
+                if (row == null || row.length != columnCount) {
+                    throw new IllegalArgumentException("Column and value array lengths do not match.");
+                }
+
+                for (int i = 0; i < columnCount; i++) {
+                    if (i > 0) {
+                        chunk.append('\t');
+                    }
+                    appendEscaped(chunk, row[i]);
+                }
+                chunk.append('\n');
+                sent++;
+
+                if (chunk.length() >= CHUNK_CHARS) {
+                    write(copy, chunk);
+                    if (progress != null) {
+                        progress.accept(sent);
+                    }
+                }
+            }
+            write(copy, chunk);
+
+            long copied = copy.endCopy();
+            if (progress != null) {
+                progress.accept(copied);
+            }
+            return copied;
+        } finally {
+            if (copy.isActive()) {
+                try {
+                    copy.cancelCopy();
+                } catch (SQLException sqle) {
+                    logger.log(Level.SEVERE, "Failed to cancel copy with exception: " + sqle);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends the buffered rows and clears the buffer.
+     * @param copy copy operation
+     * @param chunk buffered rows
+     */
+    private static void write(CopyIn copy, StringBuilder chunk) throws SQLException {
+        if (chunk.length() > 0) {
+            byte[] bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+            copy.writeToCopy(bytes, 0, bytes.length);
+            chunk.setLength(0);
+        }
+    }
+
+    /**
+     * Appends a value in COPY text format, escaping backslashes and the delimiter and line characters.
+     * @param chunk buffer to append to
+     * @param value value to append, or null for SQL NULL
+     */
+    private static void appendEscaped(StringBuilder chunk, String value) {
+        if (value == null) {
+            chunk.append("\\N");
+            return;
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    chunk.append("\\\\");
+                    break;
+                case '\t':
+                    chunk.append("\\t");
+                    break;
+                case '\n':
+                    chunk.append("\\n");
+                    break;
+                case '\r':
+                    chunk.append("\\r");
+                    break;
+                default:
+                    chunk.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package DataUtilities;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A reusable view of the current row of a streaming scan. The same view is passed to the row callback for every row,
+ * so its values are only valid until the callback returns and must be copied to be kept.
+ */
+public final class ResultRow {
+    private String[] columns;
+    private Object[] values;
+
+    /**
+     * Constructor that initializes an empty view.
+     * @param columns names of the selected columns
+     */
+    ResultRow(String[] columns) {
+        this.columns = columns;
+        this.values = new Object[columns.length];
+    }
+
+    /**
+     * Loads the values of the current row of a result set.
+     * @param res result set positioned on a row, with the columns selected in order
+     */
+    void load(ResultSet res) throws SQLException {
+        for (int i = 0; i < this.values.length; i++) {
+            this.values[i] = res.getObject(i + 1);
+        }
+    }
+
+    /**
+     * Getter for number of columns.
+     * @return number of columns
+     */
+    public int getColumnCount() {
+        return this.columns.length;
+    }
+
+    /**
+     * Getter for a column name.
+     * @param index index of column
+     * @return column name
+     */
+    public String getColumnName(int index) {
+        return this.columns[index];
+    }
+
+    /**
+     * Getter for a value by column index.
+     * @param index index of column
+     * @return value, or null for SQL NULL
+     */
+    public Object get(int index) {
+        return this.values[index];
+    }
+
+    /**
+     * Getter for a value by column name.
+     * @param column name of column
+     * @return value, or null for SQL NULL
+     */
+    public Object get(String column) throws IllegalArgumentException {
+        for (int i = 0; i < this.columns.length; i++) {
+            if (this.columns[i].equals(column)) {
+                return this.values[i];
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown column " + column + ".");
+    }
+
+    /**
+     * Getter for a value by column index as a string.
+     * @param index index of column
+     * @return value as a string, or null for SQL NULL
+     */
+    public String getString(int index) {
+        Object value = this.values[index];
+        return value == null ? null : value.toString();
+    }
+}
@@ -1,7 +1,18 @@
 package DataUtilities;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -9,6 +20,8 @@ import java.util.logging.Logger;
  * A class to load text files.
  */
 public class TextLoader {
+    private static final long MAX_REGION_BYTES = 1L << 30;  // largest region mapped at once
+
     private static Logger logger = Logger.getLogger(TextLoader.class.getName());
 
     /**
@@ -23,8 +36,7 @@ public class TextLoader {
 
         ArrayList<Object> res = new ArrayList<>();
         File file = new File(filepath);
-        try {
-            BufferedReader br = new BufferedReader(new FileReader(file));
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
             String word;
             // read word line by line
             while ((word = br.readLine()) != null) {
@@ -40,4 +52,76 @@ public class TextLoader {
 
         return res.toArray();
     }
+
+    /**
+     * Streams the lines of a text file as raw bytes. The file is memory-mapped rather than read, each line is a
+     * read-only ByteBuffer slice of the mapping without its line terminator, and nothing is decoded. The stream is
+     * sequential; call parallel() on it to split the file across threads.
+     * @param filepath path of text file
+     * @return stream of lines, or an empty stream if the file cannot be mapped
+     */
+    public static Stream<ByteBuffer> streamLineBytes(String filepath) throws IllegalArgumentException {
+        return StreamSupport.stream(lineSpliterator(filepath), false);
+    }
+
+    /**
+     * Streams the lines of a text file decoded as UTF-8 Strings. Only the lines that reach the stream's consumer are
+     * held in memory.
+     * @param filepath path of text file
+     * @return stream of lines, or an empty stream if the file cannot be mapped
+     */
+    public static Stream<String> streamLines(String filepath) throws IllegalArgumentException {
+        return streamLineBytes(filepath).map(line -> StandardCharsets.UTF_8.decode(line).toString());
+    }
+
+    /**
+     * Creates a spliterator over the lines of a memory-mapped text file.
+     * @param filepath path of text file
+     * @return spliterator of lines, or an empty spliterator if the file cannot be mapped
+     */
+    public static Spliterator<ByteBuffer> lineSpliterator(String filepath) throws IllegalArgumentException {
+        if (filepath == null) {
+            throw new IllegalArgumentException("Illegal null argument for filepath.");
+        }
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ)) {
+            return new MappedLineSpliterator(mapRegions(channel));
+        } catch (IOException ioe) {
+            logger.log(Level.SEVERE, "Failed to map file with exception: " + ioe);
+            return Spliterators.emptySpliterator();
+        }
+    }
+
+    /**
+     * Maps a file in regions of at most MAX_REGION_BYTES, each ending just after a newline or at the end of file.
+     * The mappings stay valid after the channel is closed.
+     * @param channel channel of file to map
+     * @return mapped regions
+     */
+    private static ByteBuffer[] mapRegions(FileChannel channel) throws IOException {
+        List<ByteBuffer> regions = new ArrayList<>();
+        long size = channel.size();
+        long start = 0;
+        while (start < size) {
+            long length = Math.min(MAX_REGION_BYTES, size - start);
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+
+            // shrink all but the last region to end after its final newline
+            int limit = (int) length;
+            if (start + length < size) {
+                while (limit > 0 && region.get(limit - 1) != '\n') {
+                    limit--;
+                }
+                if (limit == 0) {
+                    throw new IOException("Line longer than " + MAX_REGION_BYTES + " bytes.");
+                }
+                region.limit(limit);
+            }
+
+            regions.add(region);
+            start += limit;
+        }
+
+        return regions.toArray(new ByteBuffer[0]);
+    }
 }
@@ -1,8 +1,46 @@
+import BloomFilter.BinaryFuseFilter;
+import BloomFilter.BlockedBloomFilter;
 import BloomFilter.BloomFilter;
+import BloomFilter.ConcurrentBloomFilter;
+import BloomFilter.CountingBloomFilter;
+import BloomFilter.CuckooFilter;
+import BloomFilter.FilterMetrics;
+import BloomFilter.LongBloomFilter;
+import BloomFilter.MappedBloomFilter;
+import BloomFilter.MembershipFilter;
+import BloomFilter.MembershipQuery;
+import BloomFilter.ParallelBloomFilterBuilder;
+import BloomFilter.RegisterBlockedBloomFilter;
+import BloomFilter.ScalableBloomFilter;
+import BloomFilterUtilities.Funnels;
 import BloomFilterUtilities.HashFunction;
+import BloomFilterUtilities.HashStrategy;
 import BloomFilterUtilities.Serializer;
+import DataUtilities.TextLoader;
 
 import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class BloomFilterTests {
@@ -102,4 +140,766 @@ class BloomFilterTests {
         // check does not contain 12
         assertFalse(bf.contains(12));
     }
-}
\ No newline at end of file
+
+    @Test
+    void doubleHashingAddElementTest() {
+        // initialize double hashing bloomfilter and add 12
+        BloomFilter bf = new BloomFilter(100, 0.01, HashStrategy.DOUBLE_MURMUR3_128);
+        bf.add(12);
+
+        // check that all k indexes of hash are set
+        int[] indexes = bf.getDoubleHashFunction().hash(Serializer.serialize(12));
+        assertEquals(bf.getK(), indexes.length);
+        for (int index : indexes) {
+            assertTrue(bf.getBitset().get(index));
+        }
+    }
+
+    @Test
+    void doubleHashingContainsTest() {
+        // initialize double hashing bloomfilter and add 12
+        BloomFilter bf = new BloomFilter(100, 0.01, HashStrategy.DOUBLE_MURMUR3_128);
+        bf.add(12);
+
+        // check contains 12 and does not contain 13
+        assertTrue(bf.contains(12));
+        assertFalse(bf.contains(13));
+
+        // check default strategy is unchanged
+        assertEquals(HashStrategy.SEEDED_MURMUR3_32, initializeSimpleBf().getHashStrategy());
+        assertThrows(IllegalArgumentException.class,
+                () -> new BloomFilter(100, 0.01, null)
+        );
+    }
+
+    @Test
+    void funnelContainsTest() {
+        // initialize bloomfilters and add password with funnel
+        BloomFilter seeded = initializeSimpleBf();
+        BloomFilter doubleHashed = new BloomFilter(100, 0.01, HashStrategy.DOUBLE_MURMUR3_128);
+        seeded.add("password", Funnels.STRING);
+        doubleHashed.add("password", Funnels.STRING);
+
+        // check contains password, including as a CharSequence
+        assertTrue(seeded.contains("password", Funnels.STRING));
+        assertTrue(doubleHashed.contains("password", Funnels.STRING));
+        assertTrue(doubleHashed.contains(new StringBuilder("password"), Funnels.CHAR_SEQUENCE));
+        assertFalse(doubleHashed.contains("123456", Funnels.STRING));
+    }
+
+    @Test
+    void concurrentPutReportsChangedBitsTest() {
+        // initialize concurrent bloomfilter
+        ConcurrentBloomFilter bf = new ConcurrentBloomFilter(100, 0.01);
+        assertEquals(959, bf.getM());
+        assertEquals(7, bf.getK());
+
+        // check first put changes bits and repeated put changes none
+        assertTrue(bf.put("password", Funnels.STRING) > 0);
+        assertEquals(0, bf.put("password", Funnels.STRING));
+        assertTrue(bf.contains("password", Funnels.STRING));
+        assertFalse(bf.contains("123456", Funnels.STRING));
+    }
+
+    @Test
+    void concurrentAddTest() throws InterruptedException {
+        // add disjoint ranges of elements from several threads
+        ConcurrentBloomFilter bf = new ConcurrentBloomFilter(10000, 0.01);
+        AtomicInteger changed = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int start = t * 1000;
+            Thread thread = new Thread(() -> {
+                for (int i = start; i < start + 1000; i++) {
+                    changed.addAndGet(bf.put(i, Funnels.INTEGER));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // check every element is present and every set bit was counted exactly once
+        for (int i = 0; i < 8000; i++) {
+            assertTrue(bf.contains(i, Funnels.INTEGER));
+        }
+        assertEquals(bf.cardinality(), changed.get());
+    }
+
+    @Test
+    void blockedSizingTest() {
+        // check blocked filter is a whole number of blocks and larger than the standard filter
+        BlockedBloomFilter bf = new BlockedBloomFilter(1000, 0.01);
+        assertEquals(bf.getBlockCount() * 512, bf.getM());
+        assertTrue(bf.getM() > 9586);
+        assertTrue(BlockedBloomFilter.expectedFpr(1000, bf.getBlockCount(), bf.getK()) <= 0.01);
+
+        // check invalid arguments throw exceptions
+        assertThrows(IllegalArgumentException.class,
+                () -> new BlockedBloomFilter(0, 0.01)
+        );
+    }
+
+    @Test
+    void blockedFalsePositiveRateTest() {
+        // add 10000 elements to blocked bloomfilter
+        BlockedBloomFilter bf = new BlockedBloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            bf.add(i, Funnels.INTEGER);
+        }
+
+        // check no false negatives and a false positive rate close to the target
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(bf.contains(i, Funnels.INTEGER));
+            if (bf.contains(i + 10000, Funnels.INTEGER)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 150);
+
+        // check serializable objects are supported
+        bf.add("password");
+        assertTrue(bf.contains("password"));
+    }
+
+    @Test
+    void registerBlockedContainsAllTest() {
+        // add even numbers to register-blocked bloomfilter
+        RegisterBlockedBloomFilter bf = new RegisterBlockedBloomFilter(1000, 0.01);
+        Integer[] elements = new Integer[2000];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = i;
+            if (i % 2 == 0) {
+                bf.add(i, Funnels.INTEGER);
+            }
+        }
+
+        // check batch lookups match scalar lookups and have no false negatives
+        boolean[] results = bf.containsAll(elements, Funnels.INTEGER);
+        int falsePositives = 0;
+        for (int i = 0; i < elements.length; i++) {
+            assertEquals(bf.contains(i, Funnels.INTEGER), results[i]);
+            if (i % 2 == 0) {
+                assertTrue(results[i]);
+            } else if (results[i]) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 20);
+        assertEquals(0, bf.getM() % 64);
+    }
+
+    @Test
+    void longSizingTest() {
+        // check sizing matches BloomFilter for small filters
+        LongBloomFilter bf = new LongBloomFilter(1000, 0.01);
+        assertEquals(9586, bf.getM());
+        assertEquals(7, bf.getK());
+
+        // check a billion elements at 1e-6 is sized past the int range without allocating
+        double bits = BloomFilterUtilities.FilterSizing.optimalBits(1_000_000_000L, 1e-6);
+        assertTrue(bits > Integer.MAX_VALUE);
+    }
+
+    @Test
+    void longContainsTest() {
+        // add password to long bloomfilter
+        LongBloomFilter bf = new LongBloomFilter(1000, 0.01);
+        bf.add("password", Funnels.STRING);
+        bf.add(12);
+
+        // check contains password and 12 but not 123456
+        assertTrue(bf.contains("password", Funnels.STRING));
+        assertTrue(bf.contains(12));
+        assertFalse(bf.contains("123456", Funnels.STRING));
+    }
+
+    @Test
+    void mappedReopenTest() throws IOException {
+        // create mapped bloomfilter and add password
+        Path path = Files.createTempFile("bloomfilter", ".bin");
+        try {
+            MappedBloomFilter bf = MappedBloomFilter.create(path, 1000, 0.01);
+            assertNotNull(bf);
+            bf.add("password", Funnels.STRING);
+            bf.force();
+            bf.close();
+
+            // check reopened filter contains password and rejects adds in read-only mode
+            MappedBloomFilter reopened = MappedBloomFilter.open(path, MappedBloomFilter.Mode.READ_ONLY);
+            assertNotNull(reopened);
+            assertEquals(9586, reopened.getM());
+            assertEquals(7, reopened.getK());
+            assertTrue(reopened.contains("password", Funnels.STRING));
+            assertFalse(reopened.contains("123456", Funnels.STRING));
+            assertThrows(IllegalStateException.class,
+                    () -> reopened.add("123456", Funnels.STRING)
+            );
+            reopened.close();
+
+            // check opening a file that is not a filter fails
+            Files.write(path, new byte[]{1, 2, 3});
+            assertNull(MappedBloomFilter.open(path, MappedBloomFilter.Mode.READ_ONLY));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void snapshotRoundTripTest() {
+        // write snapshot of bloomfilter holding password
+        BloomFilter bf = new BloomFilter(1000, 0.01, HashStrategy.DOUBLE_MURMUR3_128);
+        bf.add("password", Funnels.STRING);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(0, bf.writeTo(out));
+
+        // check header, words and trailer sizes
+        assertEquals(40 + ((9586 + 63) / 64) * 8 + 8, out.size());
+
+        // check restored filter matches original
+        BloomFilter restored = BloomFilter.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        assertNotNull(restored);
+        assertEquals(bf.getM(), restored.getM());
+        assertEquals(bf.getK(), restored.getK());
+        assertEquals(HashStrategy.DOUBLE_MURMUR3_128, restored.getHashStrategy());
+        assertEquals(1, restored.getElementCount());
+        assertEquals(bf.getBitset(), restored.getBitset());
+        assertTrue(restored.contains("password", Funnels.STRING));
+
+        // check a filter spanning several write chunks restores exactly
+        BloomFilter large = new BloomFilter(1000000, 0.01);
+        for (int i = 0; i < 100000; i++) {
+            large.add("password" + i, Funnels.STRING);
+        }
+        out.reset();
+        assertEquals(0, large.writeTo(out));
+        BloomFilter largeRestored = BloomFilter.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        assertNotNull(largeRestored);
+        assertEquals(large.getBitset(), largeRestored.getBitset());
+        assertEquals(large.getSetBitCount(), largeRestored.getSetBitCount());
+    }
+
+    @Test
+    void snapshotCorruptionTest() {
+        // write snapshot of long bloomfilter and flip a bit of the bit array
+        LongBloomFilter bf = new LongBloomFilter(1000, 0.01);
+        bf.add("password", Funnels.STRING);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(0, bf.writeTo(out));
+        byte[] bytes = out.toByteArray();
+
+        // check intact snapshot restores and corrupt or truncated snapshots fail
+        LongBloomFilter restored = LongBloomFilter.readFrom(new ByteArrayInputStream(bytes));
+        assertNotNull(restored);
+        assertTrue(restored.contains("password", Funnels.STRING));
+        bytes[100] ^= 1;
+        assertNull(LongBloomFilter.readFrom(new ByteArrayInputStream(bytes)));
+        assertNull(BloomFilter.readFrom(new ByteArrayInputStream(new byte[]{1, 2, 3})));
+    }
+
+    @Test
+    void snapshotHeaderBoundsTest() throws IOException {
+        // check a header claiming 2^40 bits or 2^30 hash functions fails without allocating the filter
+        ByteBuffer header = ByteBuffer.allocate(48).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0x424c4d53).putInt(1).putLong(1L << 40).putInt(7).putInt(1).putInt(0).putInt(0).putLong(0);
+        assertNull(LongBloomFilter.readFrom(new ByteArrayInputStream(header.array())));
+        header.clear();
+        header.putInt(0x424c4d53).putInt(1).putLong(1000).putInt(1 << 30).putInt(0).putInt(0).putInt(0).putLong(0);
+        assertNull(BloomFilter.readFrom(new ByteArrayInputStream(header.array())));
+
+        // check a truncated snapshot file is rejected from its size
+        BloomFilter bf = new BloomFilter(100000, 0.01, HashStrategy.DOUBLE_MURMUR3_128);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(0, bf.writeTo(out));
+        Path path = Files.createTempFile("bloomfilter", ".blms");
+        try {
+            Files.write(path, Arrays.copyOf(out.toByteArray(), out.size() - 9));
+            try (FileChannel channel = FileChannel.open(path)) {
+                assertNull(BloomFilter.readFrom(channel));
+                assertEquals(40, channel.position());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void compressedSnapshotTest() {
+        // write raw and compressed snapshots of a sparse bloomfilter sized for 100 times its contents
+        BloomFilter bf = new BloomFilter(100000, 0.01, HashStrategy.DOUBLE_MURMUR3_128);
+        for (int i = 0; i < 1000; i++) {
+            bf.add("password" + i, Funnels.STRING);
+        }
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        assertEquals(0, bf.writeTo(raw));
+        assertEquals(0, bf.writeCompressedTo(compressed));
+
+        // check compressed snapshot is within 10% of the entropy of the set bits and restores exactly
+        int setBits = bf.getBitset().cardinality();
+        double p = (double) setBits / bf.getM();
+        double entropyBytes = bf.getM() * -(p * Math.log(p) + (1 - p) * Math.log(1 - p)) / Math.log(2) / 8;
+        assertTrue(compressed.size() < raw.size() / 5);
+        assertTrue(compressed.size() < 64 + entropyBytes * 1.1);
+        BloomFilter restored = BloomFilter.readFrom(new ByteArrayInputStream(compressed.toByteArray()));
+        assertNotNull(restored);
+        assertEquals(bf.getBitset(), restored.getBitset());
+        assertEquals(1000, restored.getElementCount());
+
+        // check long bloomfilter reads the compressed snapshot and a flipped payload bit is detected
+        LongBloomFilter longRestored = LongBloomFilter.readFrom(new ByteArrayInputStream(compressed.toByteArray()));
+        assertNotNull(longRestored);
+        assertTrue(longRestored.contains("password999", Funnels.STRING));
+        byte[] bytes = compressed.toByteArray();
+        bytes[100] ^= 1;
+        assertNull(BloomFilter.readFrom(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    void compressedSnapshotIndexOverflowTest() {
+        // encode a first set bit at 0 and a second gap of Long.MAX_VALUE, whose index wraps negative
+        BitSet payload = new BitSet();
+        payload.set(57, 184);   // 127 in unary after the first gap's zero and 56 low bits
+        payload.set(185, 241);  // all 56 low bits of the second gap
+        byte[] payloadBytes = payload.toByteArray();
+        ByteBuffer snapshot = ByteBuffer.allocate(64 + payloadBytes.length).order(ByteOrder.LITTLE_ENDIAN);
+        snapshot.putInt(0x424c4d53).putInt(2).putLong(1000).putInt(7).putInt(1).putInt(0).putInt(56).putLong(2);
+        snapshot.putLong(2).putLong(payloadBytes.length).put(payloadBytes);
+
+        // check the payload is rejected even with a valid checksum
+        CRC32C crc = new CRC32C();
+        crc.update(snapshot.array(), 0, snapshot.position());
+        snapshot.putLong(crc.getValue());
+        assertNull(BloomFilter.readFrom(new ByteArrayInputStream(snapshot.array())));
+        assertNull(LongBloomFilter.readFrom(new ByteArrayInputStream(snapshot.array())));
+    }
+
+    @Test
+    void compressedSnapshotFallbackTest() {
+        // check a filter filled to capacity is written raw
+        BloomFilter bf = new BloomFilter(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            bf.add("password" + i, Funnels.STRING);
+        }
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        bf.writeTo(raw);
+        bf.writeCompressedTo(compressed);
+        assertArrayEquals(raw.toByteArray(), compressed.toByteArray());
+    }
+
+    @Test
+    void compressedSnapshotMappedTest() throws IOException {
+        // write compressed snapshot of long bloomfilter and decode it into a mapped file
+        LongBloomFilter bf = new LongBloomFilter(100000, 0.01);
+        bf.add("password", Funnels.STRING);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(0, bf.writeCompressedTo(out));
+        Path path = Files.createTempFile("bloomfilter", ".blmf");
+        try {
+            MappedBloomFilter mapped = MappedBloomFilter.readFrom(
+                    Channels.newChannel(new ByteArrayInputStream(out.toByteArray())), path);
+            assertNotNull(mapped);
+            assertEquals(bf.getM(), mapped.getM());
+            assertTrue(mapped.contains("password", Funnels.STRING));
+            assertFalse(mapped.contains("123456", Funnels.STRING));
+            mapped.close();
+
+            // check a corrupt snapshot leaves the existing file untouched and no temporary file behind
+            byte[] bytes = out.toByteArray();
+            bytes[bytes.length - 20] ^= 1;
+            byte[] before = Files.readAllBytes(path);
+            assertNull(MappedBloomFilter.readFrom(Channels.newChannel(new ByteArrayInputStream(bytes)), path));
+            assertArrayEquals(before, Files.readAllBytes(path));
+            try (Stream<Path> siblings = Files.list(path.getParent())) {
+                assertEquals(0, siblings.filter(p -> p.getFileName().toString().startsWith(
+                        path.getFileName().toString()) && p.toString().endsWith(".part")).count());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void addAllContainsAllTest() {
+        // add passwords in a batch to both hashing strategies
+        String[] passwords = new String[1000];
+        for (int i = 0; i < passwords.length; i++) {
+            passwords[i] = "password" + i;
+        }
+        for (HashStrategy strategy : HashStrategy.values()) {
+            BloomFilter bf = new BloomFilter(1000, 0.01, strategy);
+            bf.addAll(passwords, Funnels.STRING);
+            assertEquals(1000, bf.getElementCount());
+
+            // check batch results match single lookups
+            boolean[] results = bf.containsAll(passwords, Funnels.STRING);
+            BitSet iterableResults = bf.containsAll(Arrays.asList("password1", "123456"), Funnels.STRING);
+            for (int i = 0; i < passwords.length; i++) {
+                assertTrue(results[i]);
+            }
+            assertTrue(iterableResults.get(0));
+            assertEquals(bf.contains("123456", Funnels.STRING), iterableResults.get(1));
+        }
+    }
+
+    @Test
+    void addAllPrimitiveTest() {
+        // add ints in a batch
+        BloomFilter bf = new BloomFilter(1000, 0.01, HashStrategy.DOUBLE_MURMUR3_128);
+        int[] elements = new int[600];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = i * 3;
+        }
+        bf.addAll(elements);
+
+        // check primitive batch encoding matches the integer funnel
+        boolean[] results = bf.containsAll(elements);
+        for (int i = 0; i < elements.length; i++) {
+            assertTrue(results[i]);
+            assertTrue(bf.contains(elements[i], Funnels.INTEGER));
+        }
+        assertEquals(bf.contains(7L, Funnels.LONG), bf.containsAll(new long[]{7L})[0]);
+    }
+
+    @Test
+    void parallelBuildTest() {
+        // initialize passwords
+        String[] passwords = new String[50000];
+        for (int i = 0; i < passwords.length; i++) {
+            passwords[i] = "password" + i;
+        }
+
+        // build the same filter serially and in parallel
+        BloomFilter serial = new BloomFilter(50000, 0.01, HashStrategy.DOUBLE_MURMUR3_128);
+        serial.addAll(passwords, Funnels.STRING);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BloomFilter parallel = new ParallelBloomFilterBuilder(50000, 0.01, HashStrategy.DOUBLE_MURMUR3_128, pool)
+                    .build(passwords, Funnels.STRING);
+
+            // check parallel build is identical to serial build
+            assertEquals(serial.getBitset(), parallel.getBitset());
+            assertEquals(50000, parallel.getElementCount());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void parallelBuildSerializableTest() {
+        // build from serializable objects as returned by TextLoader.readText
+        Object[] words = new Object[]{"the", "of", "and"};
+        BloomFilter bf = new ParallelBloomFilterBuilder(100, 0.01, HashStrategy.SEEDED_MURMUR3_32).build(words);
+
+        // check filter matches serial adds
+        BloomFilter serial = initializeSimpleBf();
+        for (Object word : words) {
+            serial.add((String) word);
+        }
+        assertEquals(serial.getBitset(), bf.getBitset());
+    }
+
+    @Test
+    void parallelBuildStreamTest() throws IOException {
+        // write word list
+        Path path = Files.createTempFile("words", ".txt");
+        StringBuilder text = new StringBuilder();
+        BloomFilter serial = new BloomFilter(100000, 0.01, HashStrategy.DOUBLE_MURMUR3_128);
+        for (int i = 0; i < 100000; i++) {
+            text.append("password").append(i).append('\n');
+            serial.add("password" + i, Funnels.STRING);
+        }
+        Files.write(path, text.toString().getBytes(StandardCharsets.UTF_8));
+
+        // check parallel build from raw mapped lines matches serial build from Strings
+        try {
+            BloomFilter parallel = new ParallelBloomFilterBuilder(100000, 0.01, HashStrategy.DOUBLE_MURMUR3_128)
+                    .build(TextLoader.streamLineBytes(path.toString()), Funnels.BYTE_BUFFER);
+            assertEquals(serial.getBitset(), parallel.getBitset());
+            assertEquals(100000, parallel.getElementCount());
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void scalableGrowthTest() {
+        // add ten times the initial capacity to scalable bloomfilter
+        ScalableBloomFilter bf = new ScalableBloomFilter(1000, 0.01);
+        assertEquals(1, bf.getStageCount());
+        for (int i = 0; i < 10000; i++) {
+            bf.add(i, Funnels.INTEGER);
+        }
+
+        // check stages were chained: 1000 + 2000 + 4000 fill up, the fourth stage takes the rest
+        assertEquals(4, bf.getStageCount());
+        assertEquals(10000, bf.getElementCount());
+
+        // check no false negatives and the overall false positive rate stays bounded
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(bf.contains(i, Funnels.INTEGER));
+            if (bf.contains(i + 10000, Funnels.INTEGER)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 150);
+    }
+
+    @Test
+    void scalableLongStageTest() {
+        // a stage whose 0.005 rate needs just under 2^31 bits stays int-sized
+        ScalableBloomFilter small = new ScalableBloomFilter(194000000, 0.01);
+        assertTrue(small.getBitSize() <= Integer.MAX_VALUE);
+        small = null;
+
+        // one that needs just over 2^31 bits gets its full size instead of being capped at the int range
+        ScalableBloomFilter bf = new ScalableBloomFilter(195000000, 0.01);
+        assertTrue(bf.getBitSize() > Integer.MAX_VALUE);
+        bf.add("password", Funnels.STRING);
+        assertTrue(bf.contains("password", Funnels.STRING));
+        assertEquals(1, bf.getElementCount());
+    }
+
+    @Test
+    void countingRemoveTest() {
+        // add passwords to counting bloomfilter
+        CountingBloomFilter bf = new CountingBloomFilter(100, 0.01);
+        bf.add("password", Funnels.STRING);
+        bf.add("letmein", Funnels.STRING);
+        bf.add(12);
+
+        // check removed password is gone and other elements remain
+        assertTrue(bf.remove("password", Funnels.STRING));
+        assertFalse(bf.contains("password", Funnels.STRING));
+        assertTrue(bf.contains("letmein", Funnels.STRING));
+        assertTrue(bf.contains(12));
+
+        // check removing an absent element fails
+        assertFalse(bf.remove("password", Funnels.STRING));
+    }
+
+    @Test
+    void countingOverflowTest() {
+        // add the same element until its counters saturate
+        CountingBloomFilter bf = new CountingBloomFilter(100, 0.01);
+        for (int i = 0; i < 20; i++) {
+            bf.add("password", Funnels.STRING);
+        }
+
+        // check saturation is accounted for and saturated counters survive removal
+        assertEquals(bf.getK(), bf.getSaturatedCount());
+        assertEquals(5L * bf.getK(), bf.getOverflowCount());
+        for (int i = 0; i < 20; i++) {
+            bf.remove("password", Funnels.STRING);
+        }
+        assertTrue(bf.contains("password", Funnels.STRING));
+    }
+
+    @Test
+    void cuckooAddRemoveTest() {
+        // fill cuckoo filter to its expected number of elements
+        CuckooFilter cf = new CuckooFilter(10000, 0.001);
+        assertEquals(13, cf.getFingerprintBits());
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(cf.tryAdd(i, Funnels.INTEGER));
+        }
+        assertEquals(10000, cf.getCount());
+
+        // check no false negatives and a false positive rate close to the target
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(cf.contains(i, Funnels.INTEGER));
+            if (cf.contains(i + 10000, Funnels.INTEGER)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 20);
+
+        // check removed elements are gone
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(cf.remove(i, Funnels.INTEGER));
+        }
+        assertEquals(5000, cf.getCount());
+        for (int i = 5000; i < 10000; i++) {
+            assertTrue(cf.contains(i, Funnels.INTEGER));
+        }
+    }
+
+    @Test
+    void cuckooFullTest() {
+        // add until the filter reports it is full
+        CuckooFilter cf = new CuckooFilter(100, 0.01);
+        int added = 0;
+        while (cf.tryAdd(added, Funnels.INTEGER)) {
+            added++;
+        }
+
+        // check every stored element is still found and adds throw once full
+        assertTrue(cf.isFull());
+        for (int i = 0; i < added; i++) {
+            assertTrue(cf.contains(i, Funnels.INTEGER));
+        }
+        assertThrows(IllegalStateException.class,
+                () -> cf.add("password", Funnels.STRING)
+        );
+    }
+
+    @Test
+    void membershipFilterInterfaceTest() {
+        // check every implementation answers through the common interface
+        MembershipFilter[] filters = new MembershipFilter[]{
+                new BloomFilter(1000, 0.01, HashStrategy.DOUBLE_MURMUR3_128),
+                new BlockedBloomFilter(1000, 0.01),
+                new CountingBloomFilter(1000, 0.01),
+                new CuckooFilter(1000, 0.01)
+        };
+        for (MembershipFilter filter : filters) {
+            filter.add("password", Funnels.STRING);
+            filter.add(12);
+            assertTrue(filter.contains("password", Funnels.STRING));
+            assertTrue(filter.contains(12));
+            assertTrue(filter.getBitSize() > 0);
+        }
+    }
+
+    @Test
+    void binaryFuseTest() {
+        // build binary fuse filter from passwords with a duplicate
+        String[] passwords = new String[100001];
+        for (int i = 0; i < 100000; i++) {
+            passwords[i] = "password" + i;
+        }
+        passwords[100000] = "password0";
+        BinaryFuseFilter bf = BinaryFuseFilter.build(passwords, Funnels.STRING);
+        assertEquals(100000, bf.getCount());
+
+        // check under 10 bits per element, no false negatives and about 1/256 false positives
+        assertTrue(bf.getBitSize() < 100000 * 10);
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++) {
+            assertTrue(bf.contains(passwords[i], Funnels.STRING));
+            if (bf.contains("123456" + i, Funnels.STRING)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 500);
+
+        // check filter answers through the read-only interface and cannot be added to
+        MembershipQuery query = bf;
+        assertTrue(query.contains("password0", Funnels.STRING));
+        assertFalse(MembershipFilter.class.isInstance(bf));
+    }
+
+    @Test
+    void binaryFuseSmallTest() {
+        // check empty, single element and serializable builds
+        assertFalse(BinaryFuseFilter.build(new String[0], Funnels.STRING).contains("password", Funnels.STRING));
+        assertTrue(BinaryFuseFilter.build(new String[]{"password"}, Funnels.STRING)
+                .contains("password", Funnels.STRING));
+        BinaryFuseFilter bf = BinaryFuseFilter.build(new Object[]{"the", "of", "and"});
+        assertTrue(bf.contains("the"));
+        assertTrue(bf.contains("and"));
+    }
+
+    @Test
+    void filterAlgebraTest() {
+        // build two overlapping filters: 0-5999 and 4000-9999
+        BloomFilter a = new BloomFilter(20000, 0.01);
+        BloomFilter b = new BloomFilter(20000, 0.01);
+        for (int i = 0; i < 6000; i++) {
+            a.add("password" + i, Funnels.STRING);
+        }
+        for (int i = 4000; i < 10000; i++) {
+            b.add("password" + i, Funnels.STRING);
+        }
+
+        // check union and intersection membership
+        BloomFilter union = BloomFilter.union(a, b);
+        BloomFilter intersection = BloomFilter.intersect(a, b);
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(union.contains("password" + i, Funnels.STRING));
+        }
+        for (int i = 4000; i < 6000; i++) {
+            assertTrue(intersection.contains("password" + i, Funnels.STRING));
+        }
+        assertEquals(12000, union.getElementCount());
+
+        // check estimates are within 5%
+        assertEquals(6000, a.estimateCardinality(), 300);
+        assertEquals(10000, union.estimateCardinality(), 500);
+        assertEquals(2000, a.estimateIntersectionSize(b), 300);
+        assertEquals(0.2, a.estimateJaccard(b), 0.03);
+        assertEquals(0.0, new BloomFilter(20000, 0.01).estimateCardinality());
+
+        // check in-place merge
+        a.merge(b);
+        assertTrue(a.contains("password9999", Funnels.STRING));
+        assertEquals(union.getBitset(), a.getBitset());
+    }
+
+    @Test
+    void filterAlgebraCompatibilityTest() {
+        BloomFilter a = new BloomFilter(1000, 0.01);
+
+        // check filters with different sizes or strategies are rejected
+        assertTrue(a.isCompatible(new BloomFilter(1000, 0.01)));
+        assertFalse(a.isCompatible(new BloomFilter(2000, 0.01)));
+        assertFalse(a.isCompatible(new BloomFilter(1000, 0.01, HashStrategy.DOUBLE_MURMUR3_128)));
+        assertThrows(IllegalArgumentException.class,
+                () -> BloomFilter.union(a, new BloomFilter(2000, 0.01))
+        );
+        assertThrows(IllegalArgumentException.class,
+                () -> a.merge(null)
+        );
+    }
+
+    @Test
+    void metricsTest() throws Exception {
+        // enable timed metrics and add 1000 passwords singly and in a batch
+        BloomFilter bf = new BloomFilter(2000, 0.01, HashStrategy.DOUBLE_MURMUR3_128);
+        assertNull(bf.getMetrics());
+        FilterMetrics metrics = bf.enableMetrics(true);
+        String[] batch = new String[500];
+        for (int i = 0; i < 500; i++) {
+            bf.add("password" + i, Funnels.STRING);
+            batch[i] = "password" + (i + 500);
+        }
+        bf.addAll(batch, Funnels.STRING);
+
+        // check counters and latency histograms
+        for (int i = 0; i < 1000; i++) {
+            bf.contains("password" + i, Funnels.STRING);
+            bf.contains("123456" + i, Funnels.STRING);
+        }
+        assertEquals(1000, metrics.getInsertCount());
+        assertEquals(2000, metrics.getQueryCount());
+        assertEquals(0.5, metrics.getPositiveRate(), 0.01);
+        assertEquals(500, metrics.getAddLatency().getCount());
+        assertTrue(metrics.getContainsLatencyP99Nanos() >= metrics.getContainsLatencyP50Nanos());
+
+        // check set bit count is maintained and estimates track the contents
+        assertEquals(bf.getBitset().cardinality(), metrics.getSetBitCount());
+        assertEquals((double) bf.getBitset().cardinality() / bf.getM(), metrics.getFillRatio(), 1e-12);
+        assertEquals(1000, metrics.getEstimatedElementCount(), 50);
+        assertEquals(0.01, metrics.getConfiguredFpr());
+        assertTrue(metrics.getEstimatedFpr() < metrics.getConfiguredFpr());
+
+        // check metrics are readable through JMX
+        assertEquals(0, metrics.register("metricsTest"));
+        ObjectName name = new ObjectName("BloomFilter:type=FilterMetrics,name=\"metricsTest\"");
+        assertEquals(1000L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "InsertCount"));
+        metrics.unregister();
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+
+        // check untimed metrics report no latencies and disabling stops counting
+        assertEquals(-1, bf.enableMetrics(false).getAddLatencyP50Nanos());
+        bf.disableMetrics();
+        bf.add("123456", Funnels.STRING);
+        assertNull(bf.getMetrics());
+    }
+}
@@ -1,7 +1,17 @@
+import BloomFilterUtilities.DoubleHashFunction;
+import BloomFilterUtilities.FilterSizing;
+import BloomFilterUtilities.FunnelBuffer;
+import BloomFilterUtilities.Funnels;
 import BloomFilterUtilities.HashFunction;
+import BloomFilterUtilities.LatencyHistogram;
+import BloomFilterUtilities.LongBitArray;
 import BloomFilterUtilities.Serializer;
 
 import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class BloomFilterUtilitiesTests {
@@ -43,6 +53,64 @@ class BloomFilterUtilitiesTests {
         );
     }
 
+    @Test
+    void doubleHashFunctionRangeTest() {
+        DoubleHashFunction dhf = new DoubleHashFunction(testM, 7, testSeed);
+        int[] first = dhf.hash(new byte[]{1, 0});
+        int[] second = dhf.hash(new byte[]{1, 0});
+
+        // check k deterministic hashes that are positive and less than M
+        assertArrayEquals(first, second);
+        assertEquals(7, first.length);
+        for (int hash : first) {
+            assertTrue(hash >= 0);
+            assertTrue(hash < testM);
+        }
+    }
+
+    @Test
+    void doubleHashFunctionIllegalArgumentTest() {
+        // check invalid 0 argument for M
+        assertThrows(IllegalArgumentException.class, () ->
+                new DoubleHashFunction(0, 7)
+        );
+
+        // check invalid 0 argument for k
+        assertThrows(IllegalArgumentException.class, () ->
+                new DoubleHashFunction(testM, 0)
+        );
+    }
+
+    @Test
+    void doubleHashFunctionLongIndexTest() {
+        // derive indexes for M of 3 * 2^31, past the int range
+        long M = 3L << 31;
+        DoubleHashFunction dhf = new DoubleHashFunction(M, 7, testSeed);
+        int aboveInt = 0;
+        for (int i = 0; i < 1000; i++) {
+            long[] h = dhf.hash128(new byte[]{(byte) i, (byte) (i >>> 8)}, 0, 2);
+            for (int j = 0; j < 7; j++) {
+                long index = dhf.longIndex(h[0], h[1], j);
+
+                // check index is in range and about two thirds lie past Integer.MAX_VALUE
+                assertTrue(index >= 0);
+                assertTrue(index < M);
+                if (index > Integer.MAX_VALUE) {
+                    aboveInt++;
+                }
+            }
+        }
+        assertTrue(aboveInt > 4000 && aboveInt < 5300);
+
+        // check int indexes are refused instead of being truncated
+        assertThrows(IllegalStateException.class, () ->
+                dhf.index(1, 2, 0)
+        );
+        assertThrows(IllegalStateException.class, () ->
+                dhf.hash(new byte[]{1, 0})
+        );
+    }
+
     @Test
     void serializerCharacterTest() {
         byte[] byteArr = Serializer.serialize('a');
@@ -69,4 +137,116 @@ class BloomFilterUtilitiesTests {
         // check int deserialized to original
         assertEquals(42, o);
     }
+
+    @Test
+    void funnelStringTest() {
+        String s = "p\u00e4ssw\u00f6rd\uD83D\uDD12";
+        byte[] byteArr = FunnelBuffer.encode(s, Funnels.STRING).toByteArray();
+
+        // check String is encoded as UTF-8 and CharSequence matches String
+        assertArrayEquals(s.getBytes(StandardCharsets.UTF_8), byteArr);
+        assertArrayEquals(byteArr, FunnelBuffer.encode(new StringBuilder(s), Funnels.CHAR_SEQUENCE).toByteArray());
+    }
+
+    @Test
+    void funnelPrimitiveTest() {
+        // check int and long are encoded little-endian
+        assertArrayEquals(new byte[]{42, 0, 0, 0}, FunnelBuffer.encode(42, Funnels.INTEGER).toByteArray());
+        assertArrayEquals(new byte[]{1, 0, 0, 0, 0, 0, 0, (byte) 0x80},
+                FunnelBuffer.encode(Long.MIN_VALUE + 1, Funnels.LONG).toByteArray());
+
+        // check UUID is encoded as 16 bytes
+        assertEquals(16, FunnelBuffer.encode(UUID.randomUUID(), Funnels.UUID).length());
+    }
+
+    @Test
+    void funnelBufferReuseTest() {
+        // check thread-local buffer is reused and grows to fit large elements
+        byte[] large = new byte[1000];
+        FunnelBuffer first = FunnelBuffer.encode(large, Funnels.BYTE_ARRAY);
+        assertEquals(1000, first.length());
+        FunnelBuffer second = FunnelBuffer.encode(new byte[]{1}, Funnels.BYTE_ARRAY);
+        assertSame(first, second);
+        assertEquals(1, second.length());
+
+        // check null funnel throws exception
+        assertThrows(IllegalArgumentException.class, () ->
+                FunnelBuffer.encode("test", null)
+        );
+    }
+
+    @Test
+    void longBitArraySegmentTest() {
+        // initialize bit array with 4-word segments
+        LongBitArray bits = new LongBitArray(1000, 2);
+        assertEquals(16, bits.wordCount());
+
+        // check bits on both sides of a segment boundary
+        assertTrue(bits.set(255));
+        assertTrue(bits.set(256));
+        assertFalse(bits.set(256));
+        assertTrue(bits.get(255));
+        assertTrue(bits.get(256));
+        assertFalse(bits.get(257));
+        assertEquals(2, bits.cardinality());
+
+        // check invalid arguments throw exceptions
+        assertThrows(IllegalArgumentException.class, () ->
+                new LongBitArray(0)
+        );
+    }
+
+    @Test
+    void doubleHashFunctionLongRangeTest() {
+        // check 64-bit indexes stay within a range larger than an int
+        long M = 1L << 40;
+        DoubleHashFunction dhf = new DoubleHashFunction(M, 7);
+        long[] h = dhf.hash128(new byte[]{1, 0}, 0, 2);
+        for (int i = 0; i < 7; i++) {
+            long index = dhf.longIndex(h[0], h[1], i);
+            assertTrue(index >= 0);
+            assertTrue(index < M);
+        }
+    }
+
+    @Test
+    void optimalBlocksTargetTest() {
+        // check register-sized blocks reach a target far below what they suit, at many times the standard size
+        long blocks = FilterSizing.optimalBlocks(1000000, 1e-10, 64);
+        int k = FilterSizing.optimalBlockedHashes(1000000, blocks, 64);
+        assertTrue(FilterSizing.blockedFpr(1000000, blocks, 64, k) <= 1e-10);
+        assertTrue(blocks * 64 > 10 * FilterSizing.optimalBits(1000000, 1e-10));
+
+        // check a target no number of blocks reaches is rejected
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> FilterSizing.optimalBlocks(1000000, 0, 64)
+        );
+    }
+
+    @Test
+    void latencyHistogramTest() {
+        // record latencies 1 to 10000 nanoseconds
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+
+        // check count and percentiles are within bucket precision
+        assertEquals(10000, histogram.getCount());
+        assertEquals(5000, histogram.getValueAtPercentile(50), 5000 * 0.0625);
+        assertEquals(9900, histogram.getValueAtPercentile(99), 9900 * 0.0625);
+        assertTrue(histogram.getValueAtPercentile(100) >= 10000);
+        assertEquals(1, histogram.getValueAtPercentile(0));
+
+        // check extreme values and invalid percentile
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(-5);
+        assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> histogram.getValueAtPercentile(101)
+        );
+    }
 }
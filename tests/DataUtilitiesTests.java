@@ -1,9 +1,32 @@
+import BloomFilter.BloomFilter;
+import BloomFilterUtilities.Funnels;
+import BloomFilterUtilities.HashStrategy;
+import DataUtilities.AsyncDatabaseConnector;
 import DataUtilities.DatabaseConnector;
+import DataUtilities.DatabaseFilterBuilder;
+import DataUtilities.FilteredLookup;
+import DataUtilities.MappedLineSpliterator;
 import DataUtilities.TextLoader;
 
 import org.junit.jupiter.api.*;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -51,6 +74,71 @@ class DataUtilitiesTests {
         );
     }
 
+    @Test
+    void streamLinesTest() throws IOException {
+        // write text file with a CRLF line, an empty line and no final terminator
+        Path path = Files.createTempFile("words", ".txt");
+        try {
+            Files.write(path, "the\r\nof\n\nand".getBytes(StandardCharsets.UTF_8));
+
+            // check lines match readText
+            List<String> lines = TextLoader.streamLines(path.toString()).collect(Collectors.toList());
+            assertEquals(List.of("the", "of", "", "and"), lines);
+            Object[] words = TextLoader.readText(path.toString());
+            assertEquals(4, words.length);
+            assertEquals(lines.get(0), words[0]);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+
+        // check missing file gives an empty stream and null argument throws exception
+        assertEquals(0, TextLoader.streamLineBytes("./data/missing.txt").count());
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> TextLoader.streamLines(null)
+        );
+    }
+
+    @Test
+    void lineSpliteratorSplitTest() {
+        // build two regions of numbered lines, each ending on a line boundary
+        StringBuilder first = new StringBuilder();
+        StringBuilder second = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            (i < 50000 ? first : second).append(i).append('\n');
+        }
+        ByteBuffer[] regions = new ByteBuffer[]{
+                ByteBuffer.wrap(first.toString().getBytes(StandardCharsets.UTF_8)),
+                ByteBuffer.wrap(second.toString().getBytes(StandardCharsets.UTF_8))
+        };
+
+        // split recursively and collect lines from every part in order
+        List<Spliterator<ByteBuffer>> parts = new ArrayList<>();
+        parts.add(new MappedLineSpliterator(regions));
+        for (int round = 0; round < 4; round++) {
+            List<Spliterator<ByteBuffer>> next = new ArrayList<>();
+            for (Spliterator<ByteBuffer> part : parts) {
+                Spliterator<ByteBuffer> prefix = part.trySplit();
+                if (prefix != null) {
+                    next.add(prefix);
+                }
+                next.add(part);
+            }
+            parts = next;
+        }
+        List<String> lines = new ArrayList<>();
+        for (Spliterator<ByteBuffer> part : parts) {
+            part.forEachRemaining(line -> lines.add(StandardCharsets.UTF_8.decode(line).toString()));
+        }
+
+        // check every line is seen exactly once and in order
+        assertTrue(parts.size() > 2);
+        assertEquals(100000, lines.size());
+        for (int i = 0; i < 100000; i++) {
+            assertEquals(String.valueOf(i), lines.get(i));
+        }
+    }
+
     @Test
     void createTableTest() {
         // create test table
@@ -337,4 +425,358 @@ class DataUtilitiesTests {
         // drop test table
         dbConn.drop_table("test");
     }
+
+    @Test
+    void existsTest() {
+        // create test table and insert an entry
+        dbConn.create_table(
+                "test",
+                new String[]{"var1", "var2"},
+                new String[]{"varchar(255)", "varchar(255)"}
+        );
+        dbConn.insert(
+                "test",
+                new String[]{"var1", "var2"},
+                new String[]{"test_val1", "test_val2"}
+        );
+
+        // check present, absent and quoted values, and invalid column error
+        assertEquals(1, dbConn.exists("test", "var1", "test_val1"));
+        assertEquals(0, dbConn.exists("test", "var1", "test_val2"));
+        assertEquals(0, dbConn.exists("test", "var1", "' OR '1' = '1"));
+        assertEquals(-1, dbConn.exists("test", "var3", "test_val1"));
+
+        // check null argument throws exception
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> dbConn.exists("test", "var1", null)
+        );
+
+        // drop test table
+        dbConn.drop_table("test");
+    }
+
+    @Test
+    void filteredLookupTest() {
+        // create password table holding 123456
+        dbConn.create_table(
+                "test",
+                new String[]{"var1", "var2"},
+                new String[]{"varchar(255)", "varchar(255)"}
+        );
+        dbConn.insert(
+                "test",
+                new String[]{"var1", "var2"},
+                new String[]{"123456", "test_val2"}
+        );
+
+        // build a filter that also holds password, so it is a filter positive missing from the table
+        BloomFilter bf = new BloomFilter(1000, 0.01);
+        bf.add("123456", Funnels.STRING);
+        bf.add("password", Funnels.STRING);
+        FilteredLookup<String> lookup = new FilteredLookup<>(bf, Funnels.STRING, dbConn, "test", "var1", 1);
+
+        // check repeated lookups hit the database once
+        assertEquals(1, lookup.lookup("123456"));
+        assertEquals(1, lookup.lookup("123456"));
+        assertEquals(1, lookup.getDatabaseQueries());
+        assertEquals(1, lookup.getCacheHits());
+
+        // check negative result is cached and evicts the positive one
+        assertEquals(0, lookup.lookup("password"));
+        assertEquals(0, lookup.lookup("password"));
+        assertEquals(2, lookup.getDatabaseQueries());
+        assertEquals(1, lookup.getCacheCount());
+        assertEquals(1, lookup.lookup("123456"));
+        assertEquals(3, lookup.getDatabaseQueries());
+
+        // drop test table
+        dbConn.drop_table("test");
+    }
+
+    @Test
+    void filteredLookupRejectTest() {
+        // check values the filter rejects never reach the unconnected database
+        BloomFilter bf = new BloomFilter(1000, 0.01);
+        bf.add("123456", Funnels.STRING);
+        DatabaseConnector unconnected = new DatabaseConnector("jdbc:postgresql://localhost:5432/none", "none", "none");
+        FilteredLookup<String> lookup = new FilteredLookup<>(bf, Funnels.STRING, unconnected, "test", "var1", 10);
+        assertEquals(0, lookup.lookup("qwerty"));
+        assertEquals(1, lookup.getFilterRejects());
+        assertEquals(0, lookup.getDatabaseQueries());
+
+        // check null argument throws exception
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> lookup.lookup(null)
+        );
+    }
+
+    @Test
+    void concurrentInsertTest() throws InterruptedException {
+        // create test table
+        dbConn.create_table(
+                "test",
+                new String[]{"var1", "var2"},
+                new String[]{"varchar(255)", "varchar(255)"}
+        );
+
+        // insert from more threads than pooled connections, with values that need quoting
+        Thread[] threads = new Thread[8];
+        AtomicInteger inserted = new AtomicInteger();
+        for (int t = 0; t < threads.length; t++) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 25; i++) {
+                    inserted.addAndGet(dbConn.insert(
+                            "test",
+                            new String[]{"var1", "var2"},
+                            new String[]{"it's " + thread, "val" + i}
+                    ));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // check every row was inserted with its quote intact
+        assertEquals(200, inserted.get());
+        assertEquals(200, dbConn.select("test", new String[]{"var1", "var2"}).length);
+        assertEquals(1, dbConn.exists("test", "var1", "it's 7"));
+
+        // drop test table
+        dbConn.drop_table("test");
+    }
+
+    @Test
+    void insertBatchTest() {
+        // create test table
+        dbConn.create_table(
+                "test",
+                new String[]{"var1", "var2"},
+                new String[]{"varchar(255)", "varchar(255)"}
+        );
+
+        // insert 2500 rows in batches of 1000 and check progress after each batch
+        List<String[]> rows = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            rows.add(new String[]{"test_val" + i, "it's"});
+        }
+        List<Long> progress = new ArrayList<>();
+        long val = dbConn.insertBatch("test", new String[]{"var1", "var2"}, rows.iterator(), 1000, progress::add);
+        assertEquals(2500, val);
+        assertEquals(List.of(1000L, 2000L, 2500L), progress);
+        assertEquals(1, dbConn.exists("test", "var1", "test_val2499"));
+
+        // insert lines into one column and check invalid column error
+        assertEquals(3, dbConn.insertBatch("test", "var1", Stream.of("the", "of", "and"), 2, null));
+        assertEquals(-1, dbConn.insertBatch("test", new String[]{"var3"}, rows.iterator()));
+
+        // check mismatched row throws exception and leaves no partial batch
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> dbConn.insertBatch("test", new String[]{"var1", "var2"},
+                        List.of(new String[]{"a", "b"}, new String[]{"c"}).iterator())
+        );
+        assertEquals(0, dbConn.exists("test", "var1", "a"));
+
+        // drop test table
+        dbConn.drop_table("test");
+    }
+
+    @Test
+    void copyInTest() {
+        // create test table
+        dbConn.create_table(
+                "test",
+                new String[]{"var1", "var2"},
+                new String[]{"varchar(255)", "varchar(255)"}
+        );
+
+        // copy rows with characters that need escaping and a null value
+        List<String[]> rows = new ArrayList<>();
+        rows.add(new String[]{"tab\tand\\slash", null});
+        rows.add(new String[]{"line\nbreak", "test_val2"});
+        for (int i = 0; i < 10000; i++) {
+            rows.add(new String[]{"test_val" + i, "test_val2"});
+        }
+        AtomicInteger reports = new AtomicInteger();
+        assertEquals(10002, dbConn.copyIn("test", new String[]{"var1", "var2"}, rows.iterator(),
+                count -> reports.incrementAndGet()));
+        assertTrue(reports.get() >= 1);
+        assertEquals(1, dbConn.exists("test", "var1", "tab\tand\\slash"));
+        assertEquals(1, dbConn.exists("test", "var1", "line\nbreak"));
+
+        // copy lines into one column
+        assertEquals(3, dbConn.copyIn("test", "var1", Stream.of("the", "of", "and"), null));
+
+        // drop test table
+        dbConn.drop_table("test");
+    }
+
+    @Test
+    void scanTest() {
+        // create test table and insert 2500 rows
+        dbConn.create_table(
+                "test",
+                new String[]{"var1", "var2"},
+                new String[]{"varchar(255)", "varchar(255)"}
+        );
+        List<String[]> rows = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            rows.add(new String[]{"test_val" + i, i % 2 == 0 ? "even" : "odd"});
+        }
+        dbConn.insertBatch("test", new String[]{"var1", "var2"}, rows.iterator());
+
+        // scan with a fetch size smaller than the table and check every row is seen
+        List<String> values = new ArrayList<>();
+        long val = dbConn.scan("test", new String[]{"var1", "var2"}, null, 100, row -> {
+            assertEquals(2, row.getColumnCount());
+            values.add(row.getString(0));
+        });
+        assertEquals(2500, val);
+        assertEquals(2500, values.size());
+
+        // scan with a condition and column lookup by name
+        AtomicInteger even = new AtomicInteger();
+        val = dbConn.scan("test", new String[]{"var1", "var2"}, "var2 = 'even'", 100,
+                row -> even.addAndGet("even".equals(row.get("var2")) ? 1 : 0));
+        assertEquals(1250, val);
+        assertEquals(1250, even.get());
+
+        // check invalid column error and null argument exception
+        assertEquals(-1, dbConn.scan("test", new String[]{"var3"}, row -> fail()));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> dbConn.scan("test", new String[]{"var1"}, null)
+        );
+
+        // drop test table
+        dbConn.drop_table("test");
+    }
+
+    @Test
+    void databaseFilterBuilderTest() {
+        // create test table and insert 5000 rows, including a null value
+        dbConn.create_table(
+                "test",
+                new String[]{"var1", "var2"},
+                new String[]{"varchar(255)", "varchar(255)"}
+        );
+        List<String[]> rows = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            rows.add(new String[]{i == 0 ? null : "password" + i, "test_val2"});
+        }
+        dbConn.copyIn("test", new String[]{"var1", "var2"}, rows.iterator(), null);
+
+        // build from 8 page ranges and check it matches a serial build
+        BloomFilter bf = new DatabaseFilterBuilder(5000, 0.01, HashStrategy.DOUBLE_MURMUR3_128, 8)
+                .build(dbConn, "test", "var1");
+        assertNotNull(bf);
+        assertEquals(4999, bf.getElementCount());
+        BloomFilter serial = new BloomFilter(5000, 0.01, HashStrategy.DOUBLE_MURMUR3_128);
+        for (int i = 1; i < 5000; i++) {
+            serial.add("password" + i, Funnels.STRING);
+        }
+        assertEquals(serial.getBitset(), bf.getBitset());
+
+        // check missing table error and invalid partitions exception
+        DatabaseFilterBuilder builder = new DatabaseFilterBuilder(5000, 0.01, HashStrategy.DOUBLE_MURMUR3_128, 2);
+        assertNull(builder.build(dbConn, "test2", "var1"));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new DatabaseFilterBuilder(5000, 0.01, HashStrategy.DOUBLE_MURMUR3_128, 0)
+        );
+
+        // drop test table
+        dbConn.drop_table("test");
+    }
+
+    @Test
+    void unconnectedTest() {
+        // check calls on a connector that never connected fail without throwing
+        DatabaseConnector unconnected = new DatabaseConnector("jdbc:postgresql://localhost:5432/none", "none", "none", 2);
+        assertEquals(2, unconnected.getPoolSize());
+        assertEquals(-1, unconnected.insert("test", new String[]{"var1"}, new String[]{"test_val1"}));
+        assertNull(unconnected.select("test", new String[]{"var1"}));
+        assertEquals(-1, unconnected.copyIn("test", "var1", Stream.of("test_val1"), null));
+        assertEquals(-1, unconnected.scan("test", new String[]{"var1"}, row -> fail()));
+        assertNull(new DatabaseFilterBuilder(1000, 0.01, HashStrategy.DOUBLE_MURMUR3_128, 4)
+                .build(unconnected, "test", "var1"));
+
+        // check invalid pool size throws exception, and a single connection cannot hold a snapshot and scan
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new DatabaseConnector("jdbc:postgresql://localhost:5432/none", "none", "none", 0)
+        );
+        DatabaseConnector single = new DatabaseConnector("jdbc:postgresql://localhost:5432/none", "none", "none", 1);
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new DatabaseFilterBuilder(1000, 0.01, HashStrategy.DOUBLE_MURMUR3_128, 4)
+                        .build(single, "test", "var1")
+        );
+    }
+
+    @Test
+    void asyncFailureTest() {
+        // check sentinel failures complete exceptionally with SQLException
+        DatabaseConnector unconnected = new DatabaseConnector("jdbc:postgresql://localhost:5432/none", "none", "none");
+        try (AsyncDatabaseConnector async = new AsyncDatabaseConnector(unconnected)) {
+            ExecutionException ee = assertThrows(
+                    ExecutionException.class,
+                    () -> async.insert("test", new String[]{"var1"}, new String[]{"test_val1"}).get()
+            );
+            assertTrue(ee.getCause() instanceof SQLException);
+            ee = assertThrows(
+                    ExecutionException.class,
+                    () -> async.select("test", new String[]{"var1"}, "var1 = 'test_val1'").get()
+            );
+            assertTrue(ee.getCause() instanceof SQLException);
+        }
+    }
+
+    @Test
+    void asyncTimeoutTest() throws Exception {
+        // connector whose inserts block until interrupted, tracking the most calls running at once
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicBoolean interrupted = new AtomicBoolean();
+        DatabaseConnector slow = new DatabaseConnector("jdbc:postgresql://localhost:5432/none", "none", "none") {
+            @Override
+            public int insert(String tableName, String[] columns, String[] values) {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(tableName.equals("slow") ? 10000 : 50);
+                } catch (InterruptedException ie) {
+                    interrupted.set(true);
+                } finally {
+                    running.decrementAndGet();
+                }
+                return 1;
+            }
+        };
+
+        // check a call past the timeout completes with TimeoutException and interrupts its task
+        try (AsyncDatabaseConnector async = new AsyncDatabaseConnector(slow, 2, 200)) {
+            ExecutionException ee = assertThrows(
+                    ExecutionException.class,
+                    () -> async.insert("slow", new String[]{"var1"}, new String[]{"test_val1"}).get()
+            );
+            assertTrue(ee.getCause() instanceof TimeoutException);
+            Thread.sleep(100);
+            assertTrue(interrupted.get());
+
+            // check calls beyond the concurrency bound wait for a permit
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                futures.add(async.insert("test", new String[]{"var1"}, new String[]{"test_val" + i}));
+            }
+            for (CompletableFuture<Integer> future : futures) {
+                assertEquals(1, (int) future.get());
+            }
+            assertEquals(2, maxRunning.get());
+        }
+    }
 }